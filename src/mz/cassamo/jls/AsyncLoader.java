@@ -0,0 +1,156 @@
+package mz.cassamo.jls;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs translation loads in the background for the asynchronous
+ * initialization methods of {@link LanguageSystem}.
+ *
+ * <p>
+ * Loads run on a configurable executor. By default each load runs on its own
+ * virtual thread when the JVM supports them (Java 21 and later), and on a
+ * pooled daemon thread otherwise. When several loads overlap, only the one
+ * started last is installed.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class AsyncLoader {
+
+    /**
+     * Loads the translations of a background task.
+     */
+    interface Task {
+
+        /**
+         * Loads the translations and installs them if the load is still the
+         * latest.
+         *
+         * @return the loaded catalog and whether it was installed
+         */
+        Result run(long generation) throws Exception;
+    }
+
+    static final class Result {
+
+        final Catalog catalog;
+        final boolean installed;
+        final ImportGraph imports;
+
+        Result(Catalog catalog, boolean installed) {
+            this(catalog, installed, null);
+        }
+
+        Result(Catalog catalog, boolean installed, ImportGraph imports) {
+            this.catalog = catalog;
+            this.installed = installed;
+            this.imports = imports;
+        }
+    }
+
+    private static volatile Executor executor = null;
+
+    private AsyncLoader() {
+    }
+
+    static void setExecutor(Executor loadExecutor) {
+        executor = loadExecutor;
+    }
+
+    static Executor getExecutor() {
+        Executor current = executor;
+        if (current == null) {
+            synchronized (AsyncLoader.class) {
+                if (executor == null) {
+                    executor = newTaskExecutor("jls-loader-");
+                }
+                current = executor;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor if the JVM has one, or a
+     * pool of daemon threads that are released when idle.
+     *
+     * @param threadName the name prefix of the pooled threads
+     */
+    static Executor newTaskExecutor(String threadName) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Virtual threads are not available (or are a disabled preview).
+        }
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, threadName + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a load.
+     *
+     * @param description the description of the source, for statistics
+     * @param task the load
+     * @param onInstalled called on the loader thread after the catalog was
+     *        installed; returns the stage of the work it started elsewhere,
+     *        such as the update of the components on the event dispatch
+     *        thread
+     * @return the future completed with the loaded catalog once the stage
+     *         returned by {@code onInstalled} completed, or with the error
+     */
+    static CompletableFuture<Catalog> load(String description, Task task, Supplier<? extends CompletionStage<?>> onInstalled) {
+        long generation = LanguageReader.nextGeneration();
+        long submitted = System.nanoTime();
+        CompletableFuture<Catalog> future = new CompletableFuture<>();
+        Runnable run = () -> {
+            long start = System.nanoTime();
+            try {
+                Result result = task.run(generation);
+                LanguageReader.recordStats(description, (start - submitted) / 1_000_000, start,
+                        result.catalog, result.installed, result.imports);
+                if (!result.installed) {
+                    future.complete(result.catalog);
+                    return;
+                }
+                onInstalled.get().whenComplete((ignored, e) -> {
+                    if (e == null) {
+                        future.complete(result.catalog);
+                    } else {
+                        if (LanguageSystem.isDebugMode()) {
+                            e.printStackTrace();
+                        }
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (Throwable e) {
+                if (LanguageSystem.isDebugMode()) {
+                    e.printStackTrace();
+                }
+                future.completeExceptionally(e);
+            }
+        };
+        try {
+            getExecutor().execute(run);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -1,15 +1,35 @@
 package mz.cassamo.jls;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
+import org.xml.sax.SAXParseException;
 
 import mz.cassamo.jls.exceptions.BuilderParseException;
 
@@ -19,9 +39,62 @@ import mz.cassamo.jls.exceptions.BuilderParseException;
  */
 class Builder {
 
-    private final Map<String, Map<String, String>> translations = new HashMap<>();
+    private final Map<String, Map<String, String>> translations;
 private String filePath = null;
+    /**
+     * Whether this builder can be filled from several threads at once.
+     */
+    private final boolean concurrent;
+    /**
+     * File of each language that was loaded from its own imported file.
+     * These languages are saved back to their file.
+     */
+    private final Map<String, File> languageFiles = new ConcurrentHashMap<>();
+    /**
+     * Keys changed since the last load or save, by language. A language added
+     * without keys has an empty set. Keys padded because they were missing
+     * are not changes: padding is done again on every load.
+     */
+    private final Map<String, Set<String>> dirtyKeys;
+    /**
+     * Whether the main file must be rewritten because languages were added or
+     * removed.
+     */
+    private volatile boolean structureDirty = false;
+    /**
+     * Whether missing keys must be padded before the next build or save
+     * (concurrent builders only).
+     */
+    private volatile boolean normalizationPending = false;
+    /**
+     * Keys defined more than once in the files of the last load.
+     */
+    private Map<String, Set<String>> loadedDuplicates = Collections.emptyMap();
+    /**
+     * Trigram index over the values, or {@code null} if search is disabled.
+     */
+    private volatile SearchIndex searchIndex = null;
     public Builder() {
+        this(false);
+    }
+
+    /**
+     * Creates a builder.
+     *
+     * A concurrent builder is backed by concurrent maps, one per language, so
+     * translations for different languages (or different keys of the same
+     * language) can be put from several threads without locking each other.
+     * Padding of missing keys is deferred and done once, in parallel, by
+     * {@link #build()}, {@link #save()}, {@link #saveToFile(String)} and
+     * {@link #toXmlString()}. In a concurrent builder, {@code null} values are
+     * stored as empty strings.
+     *
+     * @param concurrent true to create a concurrent builder
+     */
+    public Builder(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.translations = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.dirtyKeys = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
     }
 
    
@@ -35,12 +108,14 @@ private String filePath = null;
         	if(!f.exists()) {
         		f.mkdir();
         	}
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser saxParser = factory.newSAXParser();
             LanguageHandler handler = new LanguageHandler();
 
-            saxParser.parse(new File(filePath), handler);
+            handler.initFromFile(filePath);
             mergeTranslations(handler.getLanguages());
+            trackLanguageFiles(handler.getLanguageSources());
+            loadedDuplicates = handler.getDuplicates();
+            dirtyKeys.clear();
+            structureDirty = false;
         } catch (Exception e) {
         	if(e.getClass().getName().equals("java.io.FileNotFoundException")) {
         		File file = new File(filePath);
@@ -56,6 +131,9 @@ private String filePath = null;
         	else if(e.getClass().getName().equals("org.xml.sax.SAXParseException")) {
         	  throw new BuilderParseException(e.getMessage());
         		
+        	} else if(e.getCause() instanceof SAXParseException || e.getCause() instanceof XMLStreamException) {
+        	  throw new BuilderParseException(e.getCause().getMessage());
+        		
         	} else {
         		System.out.println(e.getClass().getName());
         		System.out.println(e.getMessage());
@@ -66,17 +144,13 @@ private String filePath = null;
 
    
     public void loadFromResources(String resourcePath, Class<?> resourceClass) {
-        try (InputStream inputStream = resourceClass.getResourceAsStream(resourcePath)) {
-            if (inputStream == null) {
+        try {
+            URL resource = resourceClass.getResource(resourcePath);
+            if (resource == null) {
                 throw new IllegalArgumentException("Resource not found: " + resourcePath);
             }
 
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser saxParser = factory.newSAXParser();
-            LanguageHandler handler = new LanguageHandler();
-
-            saxParser.parse(inputStream, handler);
-            mergeTranslations(handler.getLanguages());
+            mergeTranslations(LanguageHandler.load(resource).getLanguages());
         } catch (Exception e) {
            
         }
@@ -84,44 +158,288 @@ private String filePath = null;
 
    
     public void putLanguage(String language) {
-        translations.putIfAbsent(language, new HashMap<>());
-        normalizeTranslations();
+        if (!translations.containsKey(language)) {
+            languageMap(language);
+            markDirty(language, null);
+        }
+        requestNormalization();
     }
 
    
     public void removeLanguage(String language) {
-        translations.remove(language);
+        if (translations.remove(language) != null) {
+            SearchIndex index = searchIndex;
+            if (index != null) {
+                index.removeLanguage(language);
+            }
+            languageFiles.remove(language);
+            dirtyKeys.remove(language);
+            structureDirty = true;
+        }
     }
 
    
     public void putTranslation(String language, String key, String value) {
-        translations.putIfAbsent(language, new HashMap<>());
-        translations.get(language).put(key, value);
-        normalizeTranslations();
+        if (value == null && concurrent) {
+            value = "";
+        }
+        String previous = languageMap(language).put(key, value);
+        if (!Objects.equals(previous, value)) {
+            markDirty(language, key);
+            indexed(language, key, previous, value);
+        }
+        requestNormalization();
     }
 
    
     public void removeTranslation(String language, String key) {
-        if (translations.containsKey(language)) {
-            translations.get(language).remove(key);
+        Map<String, String> languageMap = translations.get(language);
+        String previous = languageMap != null ? languageMap.remove(key) : null;
+        if (previous != null) {
+            markDirty(language, key);
+            indexed(language, key, previous, null);
+        }
+        requestNormalization();
+    }
+
+    /**
+     * Builds an immutable catalog with the current translations, which can be
+     * installed with {@link LanguageSystem#initialize(String, Catalog)}
+     * without writing and parsing XML.
+     *
+     * @return the catalog
+     */
+    public Catalog build() {
+        normalizeIfPending();
+        return Catalog.of(translations);
+    }
+
+    /**
+     * Validates the current translations, including the keys defined more
+     * than once in the loaded file. Keys padded because they were missing in
+     * a language are reported as empty values.
+     *
+     * @return the validation report
+     */
+    public ValidationReport validate() {
+        normalizeIfPending();
+        return new CatalogValidator().validate(translations, loadedDuplicates);
+    }
+
+    /**
+     * Enables or disables the search index over translation values. When
+     * enabled, the current translations are indexed once and the index is
+     * then kept up to date by every change, so
+     * {@link #search(String, String, int, int)} does not scan the
+     * translations.
+     *
+     * @param enabled true to build and maintain the index, false to drop it
+     */
+    public synchronized void setSearchIndexEnabled(boolean enabled) {
+        if (enabled && searchIndex == null) {
+            SearchIndex index = new SearchIndex(translations);
+            searchIndex = index;
+            index.indexAll();
+        } else if (!enabled) {
+            searchIndex = null;
+        }
+    }
+
+    /**
+     * Checks if the search index is enabled.
+     *
+     * @return true if values are indexed
+     */
+    public boolean isSearchIndexEnabled() {
+        return searchIndex != null;
+    }
+
+    /**
+     * Finds the translations whose value contains a text, ignoring case, in
+     * a language or in all languages. Results are ordered by language, then
+     * by the order in which the keys were added, so pages are stable while
+     * the translations do not change.
+     *
+     * @param language the language to search, or {@code null} for all
+     * languages
+     * @param text the text to find
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of results
+     * @return the matching translations
+     * @throws IllegalStateException if the search index is not enabled
+     */
+    public List<SearchResult> search(String language, String text, int offset, int limit) {
+        return searchIndex().search(language, text, false, offset, limit);
+    }
+
+    /**
+     * Finds the translations whose value starts with a text, ignoring case.
+     *
+     * @param language the language to search, or {@code null} for all
+     * languages
+     * @param text the start of the values
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of results
+     * @return the matching translations
+     * @throws IllegalStateException if the search index is not enabled
+     * @see #search(String, String, int, int)
+     */
+    public List<SearchResult> searchPrefix(String language, String text, int offset, int limit) {
+        return searchIndex().search(language, text, true, offset, limit);
+    }
+
+    private SearchIndex searchIndex() {
+        SearchIndex index = searchIndex;
+        if (index == null) {
+            throw new IllegalStateException("The search index is not enabled, see setSearchIndexEnabled(true)");
+        }
+        return index;
+    }
+
+    /**
+     * Updates the search index after a change. The index reads the current
+     * value itself, so updates racing for the same key converge.
+     */
+    private void indexed(String language, String key, String oldValue, String newValue) {
+        SearchIndex index = searchIndex;
+        if (index != null && !Objects.equals(oldValue, newValue)) {
+            index.update(language, key);
+        }
+    }
+
+    /**
+     * Returns the languages changed since the last load or save.
+     *
+     * @return the changed languages
+     */
+    public Set<String> getDirtyLanguages() {
+        return Collections.unmodifiableSet(new HashSet<>(dirtyKeys.keySet()));
+    }
+
+    /**
+     * Returns the keys of a language changed since the last load or save.
+     *
+     * @param language the language
+     * @return the changed keys, empty if the language did not change or was
+     * only added
+     */
+    public Set<String> getDirtyKeys(String language) {
+        Set<String> keys = dirtyKeys.get(language);
+        return keys != null ? Collections.unmodifiableSet(new HashSet<>(keys)) : Collections.emptySet();
+    }
+
+    private void markDirty(String language, String key) {
+        Set<String> keys = dirtyKeys.computeIfAbsent(language, k -> concurrent ? ConcurrentHashMap.newKeySet() : new HashSet<>());
+        if (key != null) {
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Checks if there are changes that were not saved yet.
+     *
+     * @return true if {@link #save()} would write anything, false otherwise
+     */
+    public boolean isDirty() {
+        return structureDirty || !dirtyKeys.isEmpty();
+    }
+
+    /**
+     * Exports the translations to a directory, one file per language and
+     * format, such as {@code english.json} and {@code english.properties}.
+     *
+     * Each file is written in one pass with a streaming writer over a
+     * buffered file channel, and the files are written in parallel on the
+     * common fork-join pool. Keys are sorted, so repeated exports of the same
+     * translations produce identical files. Each file is written to a
+     * temporary file first and then moved into place.
+     *
+     * @param directory the directory, created if missing
+     * @param formats the formats to write
+     * @return the written files
+     * @throws IOException if a file cannot be written
+     */
+    public List<Path> export(Path directory, Set<ExportFormat> formats) throws IOException {
+        normalizeIfPending();
+        Files.createDirectories(directory);
+        List<Map.Entry<String, ExportFormat>> files = new ArrayList<>();
+        for (String language : translations.keySet()) {
+            for (ExportFormat format : formats) {
+                files.add(new AbstractMap.SimpleImmutableEntry<>(language, format));
+            }
+        }
+        Map<String, Map<String, String>> sorted = new ConcurrentHashMap<>();
+        try {
+            return files.parallelStream().map(file -> {
+                String language = file.getKey();
+                Map<String, String> languageMap = sorted.computeIfAbsent(language, k -> new TreeMap<>(translations.get(k)));
+                try {
+                    return exportFile(directory.resolve(language + "." + file.getValue().getExtension()),
+                            file.getValue(), language, languageMap);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Path exportFile(Path file, ExportFormat format, String language, Map<String, String> languageMap) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = new BufferedWriter(Channels.newWriter(FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                format.charset().newEncoder(), -1), 64 * 1024)) {
+            format.write(writer, language, languageMap);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
         }
-        normalizeTranslations();
+        return file;
     }
 
    
     public void saveToFile(String path) {
-        try (FileWriter writer = new FileWriter(path)) {
-            writer.write(toXmlString());
+        normalizeIfPending();
+        try {
+            writeFile(new File(path), toXmlString());
         } catch (IOException e) {
             if (LanguageSystem.isDebugMode()) {
                
             }
         }
     }
-  
+
+    /**
+     * Saves the changes to the file they were loaded from.
+     *
+     * Only the changed languages are written: a language loaded from its own
+     * file (through {@code <import-language>}) is saved back to that file, and
+     * the main file is only rewritten when languages were added or removed, or
+     * when a language defined inside it was changed.
+     */
     public void save() {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            writer.write(toXmlString());
+        normalizeIfPending();
+        try {
+            File mainFile = new File(filePath);
+            boolean rewriteMain = structureDirty || !mainFile.exists();
+            for (String language : dirtyKeys.keySet()) {
+                File languageFile = languageFiles.get(language);
+                if (languageFile != null) {
+                    StringBuilder xmlBuilder = new StringBuilder();
+                    appendLanguage(xmlBuilder, language, "");
+                    writeFile(languageFile, xmlBuilder);
+                } else {
+                    rewriteMain = true;
+                }
+            }
+            if (rewriteMain) {
+                writeFile(mainFile, toXmlString(mainFile.getAbsoluteFile().getParentFile()));
+            }
+            dirtyKeys.clear();
+            structureDirty = false;
         } catch (IOException e) {
             if (LanguageSystem.isDebugMode()) {
                 e.printStackTrace();
@@ -130,34 +448,95 @@ private String filePath = null;
     }
 
     public String toXmlString() {
+        normalizeIfPending();
+        return toXmlString(null);
+    }
+
+    /**
+     * Builds the XML of the catalog. When {@code baseDirectory} is given,
+     * languages that have their own file are written as
+     * {@code <import-language>} elements relative to that directory instead of
+     * inline.
+     */
+    private String toXmlString(File baseDirectory) {
         StringBuilder xmlBuilder = new StringBuilder();
         xmlBuilder.append("<!--%s %s-->\n".formatted(Info.LIB_NAME, Info.VERSION));
         xmlBuilder.append("<!--LANGUAGES: ").append(translations.size()).append("-->\n");
         
         xmlBuilder.append("<languages>\n");
 
-        for (Map.Entry<String, Map<String, String>> languageEntry : translations.entrySet()) {
-            String language = languageEntry.getKey();
-            Map<String, String> languageTranslations = languageEntry.getValue();
-
-            xmlBuilder.append("  <language value=\"").append(language).append("\">\n");
-            for (Map.Entry<String, String> translationEntry : languageTranslations.entrySet()) {
-                String key = translationEntry.getKey();
-                String value = translationEntry.getValue();
-
-                xmlBuilder.append("    <translated value=\"").append(key).append("\">\n");
-                xmlBuilder.append("      <value>").append(escapeXml(value)).append("</value>\n");
-                xmlBuilder.append("    </translated>\n");
+        for (String language : translations.keySet()) {
+            File languageFile = baseDirectory != null ? languageFiles.get(language) : null;
+            if (languageFile != null) {
+                String relativePath = baseDirectory.toPath().relativize(languageFile.toPath()).toString();
+                xmlBuilder.append("  <import-language file=\"")
+                        .append(escapeXml(relativePath.replace(File.separatorChar, '/')))
+                        .append("\"/>\n");
+            } else {
+                appendLanguage(xmlBuilder, language, "  ");
             }
-            xmlBuilder.append("  </language>\n");
         }
 
         xmlBuilder.append("</languages>");
         return xmlBuilder.toString();
     }
 
+    /**
+     * Appends a {@code <language>} element with all translations of a
+     * language.
+     */
+    private void appendLanguage(StringBuilder xmlBuilder, String language, String indent) {
+        xmlBuilder.append(indent).append("<language value=\"").append(escapeXml(language)).append("\">\n");
+        for (Map.Entry<String, String> translationEntry : translations.get(language).entrySet()) {
+            String key = translationEntry.getKey();
+            String value = translationEntry.getValue();
+
+            xmlBuilder.append(indent).append("  <translated value=\"").append(escapeXml(key)).append("\">\n");
+            xmlBuilder.append(indent).append("    <value>").append(escapeXml(value)).append("</value>\n");
+            xmlBuilder.append(indent).append("  </translated>\n");
+        }
+        xmlBuilder.append(indent).append("</language>\n");
+    }
+
+    private static void writeFile(File file, CharSequence content) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.append(content);
+        }
+    }
+
+    /**
+     * Remembers the file of each language defined alone in its own imported
+     * file, so it can be saved back there.
+     */
+    private void trackLanguageFiles(Map<String, Set<URL>> languageSources) {
+        Map<URL, Integer> languagesPerSource = new HashMap<>();
+        for (Set<URL> sources : languageSources.values()) {
+            for (URL source : sources) {
+                languagesPerSource.merge(source, 1, Integer::sum);
+            }
+        }
+        File mainFile = new File(filePath).getAbsoluteFile();
+        for (Map.Entry<String, Set<URL>> entry : languageSources.entrySet()) {
+            if (entry.getValue().size() != 1) {
+                continue;
+            }
+            URL source = entry.getValue().iterator().next();
+            if (!"file".equals(source.getProtocol()) || languagesPerSource.get(source) != 1) {
+                continue;
+            }
+            try {
+                File languageFile = new File(source.toURI());
+                if (!languageFile.equals(mainFile)) {
+                    languageFiles.put(entry.getKey(), languageFile);
+                }
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Not a plain file; the language is saved in the main file.
+            }
+        }
+    }
+
 // Escapa caracteres especiais para XML
-    private String escapeXml(String value) {
+    static String escapeXml(String value) {
         if (value == null) {
             return "";
         }
@@ -171,26 +550,89 @@ private String filePath = null;
    
     private void mergeTranslations(Map<String, Map<String, String>> newTranslations) {
         for (Map.Entry<String, Map<String, String>> entry : newTranslations.entrySet()) {
-            translations.putIfAbsent(entry.getKey(), new HashMap<>());
-            translations.get(entry.getKey()).putAll(entry.getValue());
+            Map<String, String> languageMap = languageMap(entry.getKey());
+            if (searchIndex == null) {
+                languageMap.putAll(entry.getValue());
+                continue;
+            }
+            for (Map.Entry<String, String> translation : entry.getValue().entrySet()) {
+                indexed(entry.getKey(), translation.getKey(), languageMap.put(translation.getKey(), translation.getValue()),
+                        translation.getValue());
+            }
+        }
+        requestNormalization();
+    }
+
+    /**
+     * Returns the translations of a language, creating an empty map if the
+     * language does not exist yet.
+     */
+    private Map<String, String> languageMap(String language) {
+        Map<String, String> languageMap = translations.get(language);
+        if (languageMap == null) {
+            Map<String, String> created = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+            languageMap = translations.putIfAbsent(language, created);
+            if (languageMap == null) {
+                languageMap = created;
+                structureDirty = true;
+            }
+        }
+        return languageMap;
+    }
+
+    /**
+     * Pads missing keys now, or marks them to be padded at the next build or
+     * save in a concurrent builder.
+     */
+    private void requestNormalization() {
+        if (concurrent) {
+            normalizationPending = true;
+        } else {
+            normalizeTranslations();
+        }
+    }
+
+    private void normalizeIfPending() {
+        if (normalizationPending) {
+            synchronized (this) {
+                if (normalizationPending) {
+                    normalizationPending = false;
+                    normalizeTranslations();
+                }
+            }
         }
-        normalizeTranslations();
     }
 
    
     private void normalizeTranslations() {
-        Set<String> allKeys = new HashSet<>();
+        Set<String> allKeys;
+        if (concurrent) {
+            allKeys = ConcurrentHashMap.newKeySet();
+            translations.values().parallelStream().forEach(languageMap -> allKeys.addAll(languageMap.keySet()));
+            translations.entrySet().parallelStream().forEach(entry -> padLanguage(entry.getKey(), entry.getValue(), allKeys));
+            return;
+        }
 
-       
+        allKeys = new HashSet<>();
         for (Map<String, String> languageMap : translations.values()) {
             allKeys.addAll(languageMap.keySet());
         }
 
-        
         for (Map.Entry<String, Map<String, String>> entry : translations.entrySet()) {
-            Map<String, String> languageMap = entry.getValue();
-            for (String key : allKeys) {
-                languageMap.putIfAbsent(key, ""); 
+            padLanguage(entry.getKey(), entry.getValue(), allKeys);
+        }
+    }
+
+    /**
+     * Adds every key missing in a language with an empty value.
+     */
+    private void padLanguage(String language, Map<String, String> languageMap, Set<String> allKeys) {
+        if (languageMap.size() == allKeys.size()) {
+            return;
+        }
+        for (String key : allKeys) {
+            if (languageMap.putIfAbsent(key, "") == null) {
+                indexed(language, key, null, "");
             }
         }
     }
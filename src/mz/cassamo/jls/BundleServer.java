@@ -0,0 +1,369 @@
+package mz.cassamo.jls;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An embedded HTTP server publishing the translations of a
+ * {@link LanguageInstance} as JSON, for web and mobile front ends.
+ *
+ * <p>
+ * Each language is served as a flat JSON object sorted by key:
+ * </p>
+ *
+ * <pre>
+ * GET /translations                          ["english","portuguese"]
+ * GET /translations/english                  {"exit":"Exit","hello_world":"Hello, World!",...}
+ * GET /translations/english?prefix=settings. only the keys under settings.
+ * </pre>
+ *
+ * <p>
+ * Bundles are serialized and gzipped once per catalog snapshot and then
+ * served as ready-made bytes; prefix bundles are taken from the sorted key
+ * index. Every bundle has a strong ETag computed from its content, with a
+ * {@code -gz} suffix for the gzip body, so clients polling with
+ * {@code If-None-Match} get a {@code 304 Not Modified} without a body until
+ * the translations change. Requests are handled on virtual threads when the
+ * JVM supports them.
+ * </p>
+ *
+ * <p>
+ * The JDK server writes the headers and the body of a response separately,
+ * so without {@code TCP_NODELAY} each response can wait for the delayed ACK
+ * of the client. The setting is JVM-wide and is left to the application:
+ * start the JVM with {@code -Dsun.net.httpserver.nodelay=true}, or set the
+ * property before the first {@code HttpServer} is created.
+ * </p>
+ *
+ * <pre>{@code
+ * BundleServer server = new BundleServer(LanguageSystem.getInstance());
+ * server.start(8080);
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class BundleServer {
+
+    /**
+     * Maximum number of prefix bundles cached per snapshot. When the cache is
+     * full, it is emptied before caching the next prefix.
+     */
+    private static final int MAX_PREFIX_BUNDLES = 1024;
+
+    private static final String LANGUAGES = "";
+
+    /**
+     * A serialized bundle.
+     */
+    private static final class Bundle {
+
+        final byte[] json;
+        final byte[] gzip;
+        final String etag;
+        /**
+         * The ETag of the gzip body, which is a different representation.
+         */
+        final String gzipEtag;
+
+        Bundle(byte[] json) throws IOException {
+            this.json = json;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(json);
+            }
+            this.gzip = compressed.size() < json.length ? compressed.toByteArray() : null;
+            this.etag = etagOf(json);
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+
+    /**
+     * The bundles of a catalog.
+     */
+    private static final class Snapshot {
+
+        final Catalog catalog;
+        /**
+         * Bundles of whole languages and of the language list.
+         */
+        final Map<String, Bundle> bundles = new ConcurrentHashMap<>();
+        /**
+         * Bundles of prefixes, which are chosen by clients.
+         */
+        final Map<String, Bundle> prefixBundles = new ConcurrentHashMap<>();
+
+        Snapshot(Catalog catalog) {
+            this.catalog = catalog;
+        }
+    }
+
+    private final LanguageInstance instance;
+    private final String contextPath;
+    private volatile Snapshot snapshot;
+    private HttpServer server;
+    private Executor executor;
+
+    /**
+     * Creates a server for the translations of an instance, under
+     * {@code /translations}.
+     *
+     * @param instance the instance to publish, such as
+     * {@link LanguageSystem#getInstance()}
+     */
+    public BundleServer(LanguageInstance instance) {
+        this(instance, "/translations");
+    }
+
+    /**
+     * Creates a server for the translations of an instance.
+     *
+     * @param instance the instance to publish
+     * @param contextPath the path under which the bundles are served, such as
+     * {@code /i18n}
+     */
+    public BundleServer(LanguageInstance instance, String contextPath) {
+        this.instance = instance;
+        this.contextPath = contextPath.endsWith("/") ? contextPath.substring(0, contextPath.length() - 1) : contextPath;
+    }
+
+    /**
+     * Starts the server on a port of all local addresses.
+     *
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public void start(int port) throws IOException {
+        start(new InetSocketAddress(port));
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param address the address to bind
+     * @throws IOException if the address cannot be bound
+     * @throws IllegalStateException if the server is already running
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The bundle server is already running");
+        }
+        HttpServer created = HttpServer.create(address, 0);
+        created.createContext(contextPath.isEmpty() ? "/" : contextPath, this::handle);
+        executor = AsyncLoader.newTaskExecutor("jls-http-");
+        created.setExecutor(executor);
+        created.start();
+        server = created;
+    }
+
+    /**
+     * Stops the server, waiting up to a second for running requests.
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(1);
+            server = null;
+            if (executor instanceof ExecutorService) {
+                ((ExecutorService) executor).shutdown();
+            }
+            executor = null;
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port, or -1 if the server is not running
+     */
+    public synchronized int getPort() {
+        return server != null ? server.getAddress().getPort() : -1;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Catalog catalog = instance.getCatalog();
+            if (catalog == null) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            String path = exchange.getRequestURI().getPath().substring(contextPath.length());
+            if (path.startsWith("/")) {
+                path = path.substring(1);
+            }
+            if (path.endsWith(".json")) {
+                path = path.substring(0, path.length() - 5);
+            }
+            if (!path.isEmpty() && !catalog.existsLanguage(path)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String prefix = path.isEmpty() ? "" : prefixOf(exchange.getRequestURI().getRawQuery());
+            send(exchange, bundle(catalog, path, prefix), method.equals("HEAD"));
+        } catch (RuntimeException e) {
+            if (LanguageSystem.isDebugMode()) {
+                e.printStackTrace();
+            }
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the bundle of a language (or the list of languages), serialized
+     * once per snapshot.
+     */
+    private Bundle bundle(Catalog catalog, String language, String prefix) throws IOException {
+        Snapshot current = snapshot;
+        if (current == null || current.catalog != catalog) {
+            current = new Snapshot(catalog);
+            snapshot = current;
+        }
+        Map<String, Bundle> bundles = prefix.isEmpty() ? current.bundles : current.prefixBundles;
+        String cacheKey = language + '\0' + prefix;
+        Bundle bundle = bundles.get(cacheKey);
+        if (bundle == null) {
+            bundle = new Bundle(serialize(catalog, language, prefix));
+            if (bundles == current.prefixBundles && bundles.size() >= MAX_PREFIX_BUNDLES) {
+                bundles.clear();
+            }
+            bundles.putIfAbsent(cacheKey, bundle);
+        }
+        return bundle;
+    }
+
+    private static byte[] serialize(Catalog catalog, String language, String prefix) {
+        StringBuilder sb = new StringBuilder();
+        if (language.equals(LANGUAGES)) {
+            sb.append('[');
+            for (String name : new TreeSet<>(catalog.getLanguages())) {
+                if (sb.length() > 1) {
+                    sb.append(',');
+                }
+                ValidationReport.appendJsonString(sb, name);
+            }
+            return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+        }
+        sb.append('{');
+        for (Map.Entry<String, String> entry : catalog.getAll(language, prefix).entrySet()) {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            ValidationReport.appendJsonString(sb, entry.getKey());
+            sb.append(':');
+            ValidationReport.appendJsonString(sb, entry.getValue());
+        }
+        return sb.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, Bundle bundle, boolean head) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        boolean gzip = bundle.gzip != null && acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        String etag = gzip ? bundle.gzipEtag : bundle.etag;
+        headers.set("ETag", etag);
+        headers.set("Cache-Control", "no-cache");
+        headers.set("Vary", "Accept-Encoding");
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        byte[] body = bundle.json;
+        if (gzip) {
+            body = bundle.gzip;
+            headers.set("Content-Encoding", "gzip");
+        }
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        if (head) {
+            headers.set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Checks an {@code If-None-Match} header against an ETag.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static String prefixOf(String rawQuery) {
+        if (rawQuery == null) {
+            return "";
+        }
+        for (String parameter : rawQuery.split("&")) {
+            if (parameter.startsWith("prefix=")) {
+                return URLDecoder.decode(parameter.substring(7), StandardCharsets.UTF_8).toLowerCase();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Returns a strong ETag made of the first 16 bytes of the SHA-256 of the
+     * content.
+     */
+    private static String etagOf(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder sb = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) {
+                sb.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return sb.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
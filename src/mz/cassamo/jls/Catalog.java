@@ -0,0 +1,671 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable set of translations for one or more languages.
+ *
+ * <p>
+ * The active translations of the {@link LanguageSystem} are held in a
+ * catalog. A catalog can also be created from a {@link LanguageSystem.Builder}
+ * with {@code build()} and installed directly with
+ * {@link LanguageSystem#initialize(String, Catalog)}, without writing and
+ * parsing XML.
+ * </p>
+ *
+ * <pre>{@code
+ * LanguageSystem.Builder builder = new LanguageSystem.Builder(true);
+ * // fill the builder, possibly from several threads...
+ * Catalog catalog = builder.build();
+ * LanguageSystem.initialize("english", catalog);
+ * }</pre>
+ *
+ * <p>
+ * Every catalog has a version, increasing for each new catalog. A catalog is
+ * updated by applying a {@link CatalogDelta}, which produces the next version
+ * and shares all unchanged translations with the previous one.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class Catalog {
+
+    /**
+     * Marks languages that have no plural forms in {@link #plurals}.
+     */
+    private static final PluralTable NO_PLURALS = new PluralTable(null);
+    /**
+     * Changed languages are copied into a plain map once their overrides
+     * exceed this number and a quarter of their translations.
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+    private static final int DEFAULT_HOT_CACHE_SIZE = 1024;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version = VERSIONS.incrementAndGet();
+    private final Map<String, Map<String, String>> languages;
+    /**
+     * Plural tables, built on first use for each language.
+     */
+    private final Map<String, PluralTable> plurals = new ConcurrentHashMap<>();
+    /**
+     * Sorted key indexes, built on first use for each language.
+     */
+    private final Map<String, KeyIndex> keyIndexes = new ConcurrentHashMap<>();
+
+    private Catalog(Map<String, Map<String, String>> languages) {
+        this.languages = languages;
+    }
+
+    /**
+     * Creates a catalog from translations grouped by language. The maps are
+     * copied.
+     *
+     * @param translations the translations of each language
+     * @return the catalog
+     */
+    public static Catalog of(Map<String, ? extends Map<String, String>> translations) {
+        Map<String, Map<String, String>> languages = new HashMap<>(translations.size() * 2);
+        for (Map.Entry<String, ? extends Map<String, String>> entry : translations.entrySet()) {
+            languages.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<>(entry.getValue())));
+        }
+        return new Catalog(Collections.unmodifiableMap(languages));
+    }
+
+    /**
+     * Creates a catalog that keeps its keys and values outside the Java heap,
+     * as UTF-8 in direct byte buffers. The garbage collector does not have to
+     * trace the translations, so GC pauses do not grow with the size of the
+     * catalog. Values are decoded on each access; the decoded values of up to
+     * 1024 recently used keys per language are cached on the heap.
+     *
+     * @param translations the translations of each language
+     * @return the off-heap catalog
+     */
+    public static Catalog offHeap(Map<String, ? extends Map<String, String>> translations) {
+        return offHeap(translations, DEFAULT_HOT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a catalog that keeps its keys and values outside the Java heap.
+     *
+     * @param translations the translations of each language
+     * @param hotCacheSize the number of decoded values cached on the heap per
+     * language, or 0 to decode every access
+     * @return the off-heap catalog
+     * @see #offHeap(Map)
+     */
+    public static Catalog offHeap(Map<String, ? extends Map<String, String>> translations, int hotCacheSize) {
+        Map<String, Map<String, String>> languages = new HashMap<>(translations.size() * 2);
+        for (Map.Entry<String, ? extends Map<String, String>> entry : translations.entrySet()) {
+            languages.put(entry.getKey(), OffHeapLanguageMap.of(entry.getValue(), hotCacheSize));
+        }
+        return new Catalog(Collections.unmodifiableMap(languages));
+    }
+
+    /**
+     * Returns a copy of this catalog stored outside the Java heap, or this
+     * catalog if it already is.
+     *
+     * @return the off-heap catalog
+     * @see #offHeap(Map)
+     */
+    public Catalog toOffHeap() {
+        if (isOffHeap()) {
+            return this;
+        }
+        return offHeap(languages);
+    }
+
+    /**
+     * Checks if the translations of this catalog are stored outside the Java
+     * heap.
+     *
+     * @return true if every language is stored off-heap
+     */
+    public boolean isOffHeap() {
+        if (languages instanceof LazyLanguages) {
+            return ((LazyLanguages) languages).offHeap;
+        }
+        for (Map<String, String> languageMap : languages.values()) {
+            if (!(languageMap instanceof OffHeapLanguageMap)) {
+                return false;
+            }
+        }
+        return !languages.isEmpty();
+    }
+
+    /**
+     * Creates a catalog that loads each language from a source the first time
+     * it is used. Only the language names are read now.
+     *
+     * <p>
+     * If a language cannot be loaded, it is empty until the next access tries
+     * again.
+     * </p>
+     *
+     * @param source the source of the translations
+     * @return the lazy catalog
+     * @throws IOException if the languages of the source cannot be read
+     */
+    public static Catalog lazy(CatalogSource source) throws IOException {
+        return lazy(source, false);
+    }
+
+    /**
+     * Creates a lazy catalog, optionally storing each loaded language off the
+     * Java heap.
+     */
+    static Catalog lazy(CatalogSource source, boolean offHeap) throws IOException {
+        return new Catalog(new LazyLanguages(source, source.getLanguages(), offHeap));
+    }
+
+    /**
+     * Returns a catalog with the translations of this catalog and the given
+     * translations. Given values replace existing values with the same key.
+     * Languages that are not changed are shared with this catalog, not
+     * copied.
+     *
+     * @param translations the translations to add, grouped by language
+     * @return the merged catalog
+     */
+    public Catalog merge(Map<String, ? extends Map<String, String>> translations) {
+        if (translations.isEmpty()) {
+            return this;
+        }
+        Map<String, Map<String, String>> merged = new HashMap<>(languages);
+        for (Map.Entry<String, ? extends Map<String, String>> entry : translations.entrySet()) {
+            Map<String, String> current = languages.get(entry.getKey());
+            Map<String, String> languageMap = current != null ? new HashMap<>(current) : new HashMap<>();
+            languageMap.putAll(entry.getValue());
+            merged.put(entry.getKey(), Collections.unmodifiableMap(languageMap));
+        }
+        Catalog catalog = new Catalog(Collections.unmodifiableMap(merged));
+        catalog.share(this, translations.keySet());
+        return catalog;
+    }
+
+    /**
+     * Returns the catalog produced by applying a delta to this catalog.
+     *
+     * <p>
+     * Languages not changed by the delta are shared with this catalog.
+     * Changed languages are overlays holding only the changed keys on top of
+     * the previous translations, so applying a delta costs time and memory
+     * proportional to the delta. Overlays are copied into plain maps once they
+     * grow large.
+     * </p>
+     *
+     * @param delta the changes to apply
+     * @return the next catalog, or this catalog if the delta is empty
+     * @throws IllegalStateException if the delta is based on another version
+     */
+    public Catalog apply(CatalogDelta delta) {
+        if (delta.getBaseVersion() != -1 && delta.getBaseVersion() != version) {
+            throw new IllegalStateException("Delta for version " + delta.getBaseVersion()
+                    + " cannot be applied to version " + version);
+        }
+        if (delta.isEmpty()) {
+            return this;
+        }
+        Map<String, Map<String, String>> changedLanguages = new HashMap<>();
+        // Whether a language table of this catalog is dropped, so the
+        // language map must not keep referencing it.
+        boolean dropped = false;
+        for (String language : delta.getRemovedLanguages()) {
+            if (languages.containsKey(language)) {
+                changedLanguages.put(language, null);
+                dropped = true;
+            }
+        }
+        Map<String, PluralTable> changedPlurals = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : delta.changes().entrySet()) {
+            String language = entry.getKey();
+            boolean replaced = delta.getRemovedLanguages().contains(language);
+            Map<String, String> current = replaced ? null : languages.get(language);
+            Map<String, String> languageMap;
+            if (current == null) {
+                languageMap = new HashMap<>();
+                for (Map.Entry<String, String> change : entry.getValue().entrySet()) {
+                    if (change.getValue() != null) {
+                        languageMap.put(change.getKey(), change.getValue());
+                    }
+                }
+                languageMap = Collections.unmodifiableMap(languageMap);
+            } else {
+                OverlayMap<String, String> overlay = OverlayMap.over(current, entry.getValue());
+                languageMap = overlay;
+                if (overlay.overrideCount() > Math.max(COMPACT_THRESHOLD, overlay.base().size() / 4)) {
+                    languageMap = overlay.base() instanceof OffHeapLanguageMap
+                            ? OffHeapLanguageMap.of(overlay, DEFAULT_HOT_CACHE_SIZE)
+                            : Collections.unmodifiableMap(overlay.compact());
+                    dropped = true;
+                }
+            }
+            changedLanguages.put(language, languageMap);
+            PluralTable table = replaced ? null : plurals.get(language);
+            if (table != null) {
+                changedPlurals.put(language, table.with(language, entry.getValue()));
+            }
+        }
+        OverlayMap<String, Map<String, String>> next = OverlayMap.over(languages, changedLanguages);
+        // The language map has one entry per language: rebuilding it is
+        // cheap and lets the dropped tables (and off-heap buffers) be freed.
+        Catalog catalog = new Catalog(dropped ? Collections.unmodifiableMap(next.compact()) : next);
+        catalog.share(this, changedLanguages.keySet());
+        catalog.plurals.putAll(changedPlurals);
+        return catalog;
+    }
+
+    /**
+     * Shares the plural tables and key indexes of the unchanged languages of
+     * the catalog this catalog was derived from.
+     */
+    private void share(Catalog previous, Set<String> changed) {
+        for (Map.Entry<String, PluralTable> entry : previous.plurals.entrySet()) {
+            if (!changed.contains(entry.getKey())) {
+                plurals.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, KeyIndex> entry : previous.keyIndexes.entrySet()) {
+            if (!changed.contains(entry.getKey())) {
+                keyIndexes.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns an empty catalog.
+     *
+     * @return the empty catalog
+     */
+    public static Catalog empty() {
+        return new Catalog(Collections.emptyMap());
+    }
+
+    /**
+     * Returns the version of this catalog. Each catalog has a unique version,
+     * and catalogs created later have higher versions.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the languages of this catalog.
+     *
+     * @return an unmodifiable set of language names
+     */
+    public Set<String> getLanguages() {
+        return languages.keySet();
+    }
+
+    /**
+     * Checks if a language exists in this catalog.
+     *
+     * @param language the language to check
+     * @return true if the language exists, false otherwise
+     */
+    public boolean existsLanguage(String language) {
+        return languages.containsKey(language);
+    }
+
+    /**
+     * Returns the translations of a language.
+     *
+     * @param language the language
+     * @return an unmodifiable map of translations by key, or {@code null} if
+     * the language does not exist
+     */
+    public Map<String, String> getTranslations(String language) {
+        return languages.get(language);
+    }
+
+    /**
+     * Returns the translations of every language.
+     *
+     * @return an unmodifiable map of translations by language
+     */
+    public Map<String, Map<String, String>> getTranslations() {
+        return languages;
+    }
+
+    /**
+     * Retrieves a translation.
+     *
+     * @param language the language
+     * @param key the translation key
+     * @param default_value the value to return if the key or language is not
+     * found
+     * @return the translation, or the default value if not found
+     */
+    public String get(String language, String key, String default_value) {
+        Map<String, String> languageMap = languages.get(language);
+        if (languageMap == null) {
+            return default_value;
+        }
+        return languageMap.getOrDefault(key, default_value);
+    }
+
+    /**
+     * Returns the number of translations of all languages.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        int size = 0;
+        for (Map<String, String> languageMap : languages.values()) {
+            size += languageMap.size();
+        }
+        return size;
+    }
+
+    /**
+     * Retrieves the plural form of a translation for a given count.
+     *
+     * @param language the language
+     * @param key the key of the plural translation
+     * @param n the count used to select the plural category
+     * @param default_value the value to return if the key or language is not
+     * found
+     * @return the plural form, the plain translation if the key has no plural
+     * forms, or the default value if not found
+     */
+    public String getPlural(String language, String key, long n, String default_value) {
+        PluralTable table = getPluralTable(language);
+        if (table != null) {
+            String value = table.select(key, n);
+            if (value != null) {
+                return value;
+            }
+        }
+        return get(language, key, default_value);
+    }
+
+    /**
+     * Retrieves the translations of several keys, resolving the language
+     * table only once.
+     *
+     * @param language the language
+     * @param keys the translation keys
+     * @param values the array receiving the values, in key order; {@code null}
+     * is stored for keys that are not found
+     */
+    void getValues(String language, String[] keys, String[] values) {
+        Map<String, String> languageMap = languages.get(language);
+        if (languageMap == null) {
+            Arrays.fill(values, 0, keys.length, null);
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = languageMap.get(keys[i]);
+        }
+    }
+
+    /**
+     * Returns the keys of a language that start with a prefix, such as
+     * {@code settings.}, in sorted order. The keys are indexed once per
+     * catalog and language, and the result is a read-only view of the index,
+     * not a copy.
+     *
+     * @param language the language
+     * @param prefix the prefix of the keys, or an empty string for all keys
+     * @return the sorted keys, or an empty list if the language does not
+     * exist
+     */
+    public List<String> getKeys(String language, String prefix) {
+        KeyIndex index = getKeyIndex(language);
+        return index != null ? index.keys(prefix) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the translations of a language whose keys start with a prefix,
+     * as a read-only view sorted by key.
+     *
+     * @param language the language
+     * @param prefix the prefix of the keys, or an empty string for all keys
+     * @return the translations, or an empty map if the language does not
+     * exist
+     */
+    public Map<String, String> getAll(String language, String prefix) {
+        KeyIndex index = getKeyIndex(language);
+        return index != null ? index.translations(prefix, languages.get(language)) : Collections.emptyMap();
+    }
+
+    /**
+     * Finds the key made of a prefix and a suffix without concatenating
+     * them.
+     *
+     * @return the key, or {@code null} if the language or key does not exist
+     */
+    String findKey(String language, String prefix, String suffix) {
+        KeyIndex index = getKeyIndex(language);
+        return index != null ? index.find(prefix, suffix) : null;
+    }
+
+    KeyIndex getKeyIndex(String language) {
+        Map<String, String> languageMap = language != null ? languages.get(language) : null;
+        if (languageMap == null) {
+            return null;
+        }
+        return keyIndexes.computeIfAbsent(language, k -> KeyIndex.of(languageMap));
+    }
+
+    PluralTable getPluralTable(String language) {
+        Map<String, String> languageMap = language != null ? languages.get(language) : null;
+        if (languageMap == null) {
+            return null;
+        }
+        PluralTable table = plurals.computeIfAbsent(language, k -> {
+            PluralTable built = PluralTable.of(k, languageMap);
+            return built != null ? built : NO_PLURALS;
+        });
+        return table != NO_PLURALS ? table : null;
+    }
+
+    /**
+     * Languages of a lazy catalog, loaded from the source on first access.
+     */
+    static final class LazyLanguages extends AbstractMap<String, Map<String, String>> {
+
+        private final CatalogSource source;
+        private final Set<String> names;
+        private final boolean offHeap;
+        private final Map<String, Map<String, String>> loaded = new ConcurrentHashMap<>();
+
+        LazyLanguages(CatalogSource source, Set<String> names, boolean offHeap) {
+            this.source = source;
+            this.names = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+            this.offHeap = offHeap;
+        }
+
+        @Override
+        public Map<String, String> get(Object key) {
+            if (!names.contains(key)) {
+                return null;
+            }
+            String language = (String) key;
+            Map<String, String> languageMap = loaded.get(language);
+            if (languageMap != null) {
+                return languageMap;
+            }
+            try {
+                Map<String, String> fetched = source.loadLanguage(language);
+                if (offHeap) {
+                    languageMap = OffHeapLanguageMap.of(fetched != null ? fetched : Collections.emptyMap(), DEFAULT_HOT_CACHE_SIZE);
+                } else {
+                    languageMap = Collections.unmodifiableMap(fetched != null ? new HashMap<>(fetched) : new HashMap<>());
+                }
+                Map<String, String> previous = loaded.putIfAbsent(language, languageMap);
+                return previous != null ? previous : languageMap;
+            } catch (IOException e) {
+                if (LanguageSystem.isDebugMode()) {
+                    e.printStackTrace();
+                }
+                return Collections.emptyMap();
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return names.contains(key);
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return names;
+        }
+
+        @Override
+        public int size() {
+            return names.size();
+        }
+
+        @Override
+        public Set<Entry<String, Map<String, String>>> entrySet() {
+            return new AbstractSet<Entry<String, Map<String, String>>>() {
+                @Override
+                public Iterator<Entry<String, Map<String, String>>> iterator() {
+                    Iterator<String> iterator = names.iterator();
+                    return new Iterator<Entry<String, Map<String, String>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Map<String, String>> next() {
+                            String language = iterator.next();
+                            return new SimpleImmutableEntry<>(language, get(language));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * Plural forms of one language, with the plural rule of the language
+     * resolved once.
+     */
+    static final class PluralTable {
+
+        private final PluralRules.PluralRule rule;
+        private final Map<String, String[]> forms = new HashMap<>();
+
+        PluralTable(String language) {
+            this.rule = PluralRules.forLanguage(language);
+        }
+
+        /**
+         * Builds the plural table of a language from its translations.
+         *
+         * @return the plural table, or {@code null} if the language has no
+         *         plural forms
+         */
+        static PluralTable of(String language, Map<String, String> translations) {
+            PluralTable table = null;
+            for (Map.Entry<String, String> entry : translations.entrySet()) {
+                if (categoryOf(entry.getKey()) >= 0) {
+                    if (table == null) {
+                        table = new PluralTable(language);
+                    }
+                    table.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return table;
+        }
+
+        /**
+         * Returns the plural category of a full translation key (e.g.
+         * {@code items#one}), or -1 if the key is not a plural form.
+         */
+        static int categoryOf(String translationKey) {
+            int separator = translationKey.lastIndexOf(PluralRules.SEPARATOR);
+            return separator > 0 ? PluralRules.categoryOf(translationKey.substring(separator + 1)) : -1;
+        }
+
+        void put(String fullKey, String value) {
+            int separator = fullKey.lastIndexOf(PluralRules.SEPARATOR);
+            int category = PluralRules.categoryOf(fullKey.substring(separator + 1));
+            forms.computeIfAbsent(fullKey.substring(0, separator),
+                    k -> new String[PluralRules.CATEGORY_NAMES.length])[category] = value;
+        }
+
+        /**
+         * Returns a copy of this table with changed translations applied; a
+         * {@code null} value removes a key. Only plural keys are looked at.
+         *
+         * @return the new table, which is this table if no plural key changed,
+         *         or {@link #NO_PLURALS} if no plural form is left
+         */
+        PluralTable with(String language, Map<String, String> changes) {
+            PluralTable table = null;
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                int category = categoryOf(change.getKey());
+                if (category < 0) {
+                    continue;
+                }
+                if (table == null) {
+                    table = new PluralTable(language);
+                    for (Map.Entry<String, String[]> entry : forms.entrySet()) {
+                        table.forms.put(entry.getKey(), entry.getValue().clone());
+                    }
+                }
+                String key = change.getKey().substring(0, change.getKey().lastIndexOf(PluralRules.SEPARATOR));
+                if (change.getValue() != null) {
+                    table.put(change.getKey(), change.getValue());
+                } else if (table.forms.containsKey(key)) {
+                    String[] values = table.forms.get(key);
+                    values[category] = null;
+                    if (Arrays.stream(values).allMatch(Objects::isNull)) {
+                        table.forms.remove(key);
+                    }
+                }
+            }
+            if (table == null) {
+                return this;
+            }
+            return table.forms.isEmpty() ? NO_PLURALS : table;
+        }
+
+        /**
+         * Returns the plural forms of a key by category, or {@code null} if
+         * the key has no plural forms. The array must not be modified.
+         */
+        String[] formsOf(String translationKey) {
+            return forms.get(translationKey);
+        }
+
+        String select(String translationKey, long n) {
+            String[] values = forms.get(translationKey);
+            if (values == null) {
+                return null;
+            }
+            String value = values[rule.select(Math.abs(n))];
+            return value != null ? value : values[PluralRules.OTHER];
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A set of changes to a {@link Catalog}: translations added or changed,
+ * translations removed, and languages removed.
+ *
+ * <p>
+ * A delta is applied to a catalog with {@link Catalog#apply(CatalogDelta)}, or
+ * to the active translations with
+ * {@link LanguageSystem#applyDelta(CatalogDelta)}, producing the next version
+ * of the catalog. Only the changed languages are touched, so the cost of
+ * applying a delta depends on the size of the delta, not of the catalog.
+ * </p>
+ *
+ * <pre>{@code
+ * CatalogDelta delta = new CatalogDelta()
+ *         .put("english", "hello_world", "Hello, World!")
+ *         .remove("english", "old_key")
+ *         .removeLanguage("klingon");
+ * LanguageSystem.applyDelta(delta);
+ * }</pre>
+ *
+ * <p>
+ * Deltas can be written to XML with {@link #toXmlString()} and read back with
+ * {@link #parse(InputStream)}:
+ * </p>
+ *
+ * <pre>{@code
+ * <delta base-version="12">
+ *     <language value="english">
+ *         <translated value="hello_world">
+ *             <value>Hello, World!</value>
+ *         </translated>
+ *         <removed value="old_key"/>
+ *     </language>
+ *     <remove-language value="klingon"/>
+ * </delta>
+ * }</pre>
+ *
+ * Keys are full translation keys, so tense and plural forms are written as
+ * {@code key~tense} and {@code key#category}.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class CatalogDelta {
+
+    private final long baseVersion;
+    /**
+     * Changed keys by language; a {@code null} value marks a removed key.
+     */
+    private final Map<String, Map<String, String>> changes = new LinkedHashMap<>();
+    private final Set<String> removedLanguages = new LinkedHashSet<>();
+
+    /**
+     * Creates an empty delta that can be applied to any catalog.
+     */
+    public CatalogDelta() {
+        this(-1);
+    }
+
+    /**
+     * Creates an empty delta that can only be applied to the catalog with the
+     * given version.
+     *
+     * @param baseVersion the version of the catalog the delta is based on, or
+     * -1 to allow any catalog
+     */
+    public CatalogDelta(long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    /**
+     * Computes the delta that turns one catalog into another.
+     *
+     * <p>
+     * Languages shared between the two catalogs are skipped, and languages
+     * derived from the other catalog by applying a delta are compared by
+     * their changes only.
+     * </p>
+     *
+     * @param from the old catalog
+     * @param to the new catalog
+     * @return the delta, based on the version of {@code from}
+     */
+    public static CatalogDelta between(Catalog from, Catalog to) {
+        CatalogDelta delta = new CatalogDelta(from.getVersion());
+        for (String language : from.getLanguages()) {
+            if (!to.existsLanguage(language)) {
+                delta.removeLanguage(language);
+            }
+        }
+        for (Map.Entry<String, Map<String, String>> entry : to.getTranslations().entrySet()) {
+            Map<String, String> oldMap = from.getTranslations(entry.getKey());
+            Map<String, String> newMap = entry.getValue();
+            if (oldMap == newMap) {
+                continue;
+            }
+            if (oldMap == null) {
+                for (Map.Entry<String, String> translation : newMap.entrySet()) {
+                    delta.put(entry.getKey(), translation.getKey(), translation.getValue());
+                }
+                continue;
+            }
+            for (String key : changedKeys(oldMap, newMap)) {
+                String value = newMap.get(key);
+                if (value == null) {
+                    if (oldMap.containsKey(key)) {
+                        delta.remove(entry.getKey(), key);
+                    }
+                } else if (!value.equals(oldMap.get(key))) {
+                    delta.put(entry.getKey(), key, value);
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the keys that may differ between two tables of one language.
+     */
+    private static Set<String> changedKeys(Map<String, String> oldMap, Map<String, String> newMap) {
+        Set<String> changed = OverlayMap.changedKeys(oldMap, newMap);
+        if (changed != null) {
+            return changed;
+        }
+        Set<String> keys = new HashSet<>(newMap.keySet());
+        keys.addAll(oldMap.keySet());
+        return keys;
+    }
+
+    /**
+     * Adds or changes a translation.
+     *
+     * @param language the language
+     * @param key the translation key
+     * @param value the translation value
+     * @return this delta
+     */
+    public CatalogDelta put(String language, String key, String value) {
+        Objects.requireNonNull(value, "value");
+        changesOf(language).put(key, value);
+        return this;
+    }
+
+    /**
+     * Removes a translation.
+     *
+     * @param language the language
+     * @param key the translation key
+     * @return this delta
+     */
+    public CatalogDelta remove(String language, String key) {
+        changesOf(language).put(key, null);
+        return this;
+    }
+
+    /**
+     * Removes a language with all its translations. Translations put into
+     * the same language afterwards start from an empty language.
+     *
+     * @param language the language to remove
+     * @return this delta
+     */
+    public CatalogDelta removeLanguage(String language) {
+        changes.remove(language);
+        removedLanguages.add(language);
+        return this;
+    }
+
+    private Map<String, String> changesOf(String language) {
+        return changes.computeIfAbsent(Objects.requireNonNull(language, "language"), k -> new LinkedHashMap<>());
+    }
+
+    /**
+     * Returns the version of the catalog this delta is based on.
+     *
+     * @return the base version, or -1 if the delta applies to any catalog
+     */
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * Returns the languages with added, changed or removed translations.
+     *
+     * @return an unmodifiable set of language names
+     */
+    public Set<String> getChangedLanguages() {
+        return Collections.unmodifiableSet(changes.keySet());
+    }
+
+    /**
+     * Returns the added or changed translations of a language.
+     *
+     * @param language the language
+     * @return a new map of values by key
+     */
+    public Map<String, String> getPut(String language) {
+        Map<String, String> put = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : changes.getOrDefault(language, Collections.emptyMap()).entrySet()) {
+            if (entry.getValue() != null) {
+                put.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return put;
+    }
+
+    /**
+     * Returns the removed translation keys of a language.
+     *
+     * @param language the language
+     * @return a new set of keys
+     */
+    public Set<String> getRemoved(String language) {
+        Set<String> removed = new LinkedHashSet<>();
+        for (Map.Entry<String, String> entry : changes.getOrDefault(language, Collections.emptyMap()).entrySet()) {
+            if (entry.getValue() == null) {
+                removed.add(entry.getKey());
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the removed languages.
+     *
+     * @return an unmodifiable set of language names
+     */
+    public Set<String> getRemovedLanguages() {
+        return Collections.unmodifiableSet(removedLanguages);
+    }
+
+    /**
+     * Returns the changes of each language; a {@code null} value marks a
+     * removed key.
+     */
+    Map<String, Map<String, String>> changes() {
+        return changes;
+    }
+
+    /**
+     * Returns the number of changed keys and removed languages.
+     *
+     * @return the size of this delta
+     */
+    public int size() {
+        int size = removedLanguages.size();
+        for (Map<String, String> languageChanges : changes.values()) {
+            size += languageChanges.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks if this delta has no changes.
+     *
+     * @return true if the delta is empty
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty() && removedLanguages.isEmpty();
+    }
+
+    /**
+     * Converts this delta to its XML representation.
+     *
+     * @return the XML content
+     */
+    public String toXmlString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<delta");
+        if (baseVersion != -1) {
+            sb.append(" base-version=\"").append(baseVersion).append("\"");
+        }
+        sb.append(">\n");
+        // Removals come first: parsing them drops the changes read before.
+        for (String language : removedLanguages) {
+            sb.append("    <remove-language value=\"").append(Builder.escapeXml(language)).append("\"/>\n");
+        }
+        for (Map.Entry<String, Map<String, String>> entry : changes.entrySet()) {
+            sb.append("    <language value=\"").append(Builder.escapeXml(entry.getKey())).append("\">\n");
+            for (Map.Entry<String, String> change : entry.getValue().entrySet()) {
+                if (change.getValue() == null) {
+                    sb.append("        <removed value=\"").append(Builder.escapeXml(change.getKey())).append("\"/>\n");
+                } else {
+                    sb.append("        <translated value=\"").append(Builder.escapeXml(change.getKey())).append("\">\n");
+                    sb.append("            <value>").append(Builder.escapeXml(change.getValue())).append("</value>\n");
+                    sb.append("        </translated>\n");
+                }
+            }
+            sb.append("    </language>\n");
+        }
+        sb.append("</delta>\n");
+        return sb.toString();
+    }
+
+    /**
+     * Reads a delta from its XML representation.
+     *
+     * @param inputStream the XML content
+     * @return the delta
+     * @throws IOException if the content cannot be read or is not a valid
+     * delta
+     */
+    public static CatalogDelta parse(InputStream inputStream) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = ParserProvider.createStreamReader(inputStream);
+            CatalogDelta delta = null;
+            String language = null;
+            String key = null;
+            StringBuilder valueBuilder = new StringBuilder();
+            boolean inValue = false;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = reader.getLocalName().toLowerCase();
+                        if (delta == null) {
+                            if (!name.equals("delta")) {
+                                throw new IOException("Not a catalog delta: <" + reader.getLocalName() + ">");
+                            }
+                            String base = reader.getAttributeValue(null, "base-version");
+                            delta = new CatalogDelta(base != null ? Long.parseLong(base.trim()) : -1);
+                            break;
+                        }
+                        switch (name) {
+                            case "language":
+                                language = attribute(reader, name);
+                                break;
+                            case "translated":
+                                requireLanguage(language, name);
+                                key = attribute(reader, name);
+                                break;
+                            case "value":
+                                if (key == null) {
+                                    throw new IOException("Malformed catalog delta: <value> outside <translated>");
+                                }
+                                inValue = true;
+                                valueBuilder.setLength(0);
+                                break;
+                            case "removed":
+                                requireLanguage(language, name);
+                                delta.remove(language, attribute(reader, name));
+                                break;
+                            case "remove-language":
+                                delta.removeLanguage(attribute(reader, name));
+                                break;
+                            default:
+                                break;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (inValue) {
+                            valueBuilder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        switch (reader.getLocalName().toLowerCase()) {
+                            case "value":
+                                if (inValue) {
+                                    inValue = false;
+                                    delta.put(language, key, valueBuilder.toString().trim());
+                                }
+                                break;
+                            case "translated":
+                                key = null;
+                                break;
+                            case "language":
+                                language = null;
+                                key = null;
+                                break;
+                            default:
+                                break;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return delta != null ? delta : new CatalogDelta();
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Error while parsing catalog delta", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Nothing left to release.
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the {@code value} attribute of the current element.
+     *
+     * @throws IOException if the element has no {@code value} attribute
+     */
+    private static String attribute(XMLStreamReader reader, String element) throws IOException {
+        String value = reader.getAttributeValue(null, "value");
+        if (value == null) {
+            throw new IOException("Malformed catalog delta: <" + element + "> without a value attribute");
+        }
+        return value;
+    }
+
+    private static void requireLanguage(String language, String element) throws IOException {
+        if (language == null) {
+            throw new IOException("Malformed catalog delta: <" + element + "> outside <language>");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogDelta[base=" + baseVersion + ", languages=" + changes.keySet()
+                + ", removedLanguages=" + removedLanguages + ", size=" + size() + "]";
+    }
+}
@@ -0,0 +1,583 @@
+package mz.cassamo.jls;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Merges language XML files of any size into one file with bounded memory.
+ *
+ * <p>
+ * Loading large catalogs into a {@link LanguageSystem.Builder} keeps every
+ * translation in memory. This merger instead streams each input with the
+ * StAX reader, including its {@code <import-language>} files, and buffers
+ * the translations until the memory limit is reached. The buffer is then
+ * sorted by language and key and spilled to a temporary run file. The runs
+ * are merged (at most 64 at a time) into the output, which is written
+ * language by language, with keys sorted and conflicts resolved by a
+ * {@link ConflictPolicy}. As in the builder, keys missing in a language are
+ * added with an empty value, unless disabled with
+ * {@link #setPadMissingKeys(boolean)}.
+ * </p>
+ *
+ * <pre>{@code
+ * long written = new CatalogMerger(ConflictPolicy.KEEP_EXISTING)
+ *         .add(Paths.get("languages.xml"))
+ *         .add(Paths.get("vendor/languages.xml"))
+ *         .setMemoryLimit(64L << 20)
+ *         .mergeTo(Paths.get("languages.xml"));
+ * }</pre>
+ *
+ * <p>
+ * The output is written to a temporary file and moved in place once
+ * complete, so it can be one of the inputs.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class CatalogMerger {
+
+    private static final long DEFAULT_MEMORY_LIMIT = 32L << 20;
+    private static final int MAX_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    /**
+     * Estimated heap size of a buffered translation, besides its characters.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private static final Comparator<Entry> ORDER = (a, b) -> {
+        int result = a.language.compareTo(b.language);
+        return result != 0 ? result : a.key.compareTo(b.key);
+    };
+
+    /**
+     * A translation read from an input.
+     */
+    private static final class Entry {
+
+        final String language;
+        final String key;
+        final String value;
+        final int source;
+
+        Entry(String language, String key, String value, int source) {
+            this.language = language;
+            this.key = key;
+            this.value = value;
+            this.source = source;
+        }
+    }
+
+    /**
+     * Translations in language and key order.
+     */
+    private interface Cursor extends Closeable {
+
+        /**
+         * Returns the next translation, or {@code null} at the end.
+         */
+        Entry next() throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * Reads a run file.
+     */
+    private static final class RunReader implements Cursor {
+
+        private final DataInputStream in;
+
+        RunReader(Path file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            String language = readString(in);
+            if (language == null) {
+                return null;
+            }
+            return new Entry(language, readString(in), readString(in), in.readInt());
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Merges sorted cursors. Equal translations are returned in the order of
+     * the cursors, so earlier runs come first.
+     */
+    private static final class MergeCursor implements Cursor {
+
+        private static final class Head {
+
+            final Cursor cursor;
+            final int order;
+            Entry entry;
+
+            Head(Cursor cursor, int order) {
+                this.cursor = cursor;
+                this.order = order;
+            }
+        }
+
+        private final List<Cursor> cursors = new ArrayList<>();
+        private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> {
+            int result = ORDER.compare(a.entry, b.entry);
+            return result != 0 ? result : Integer.compare(a.order, b.order);
+        });
+
+        MergeCursor(List<Path> runs) throws IOException {
+            try {
+                for (Path run : runs) {
+                    Head head = new Head(new RunReader(run), cursors.size());
+                    cursors.add(head.cursor);
+                    head.entry = head.cursor.next();
+                    if (head.entry != null) {
+                        heads.add(head);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            Head head = heads.poll();
+            if (head == null) {
+                return null;
+            }
+            Entry entry = head.entry;
+            head.entry = head.cursor.next();
+            if (head.entry != null) {
+                heads.add(head);
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Receives the translations of an input and its imports.
+     */
+    private final class Sink extends LanguageHandler {
+
+        private final Session session;
+        private final URL url;
+        private final Set<String> visited;
+
+        Sink(Session session, URL url, Set<String> visited) {
+            this.session = session;
+            this.url = url;
+            this.visited = visited;
+        }
+
+        @Override
+        void importLanguage(String importFilePath) {
+            if (importFilePath != null) {
+                try {
+                    read(session, LanguageHandler.resolveImport(url, importFilePath), visited);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        @Override
+        void startLanguage(String language) {
+            super.startLanguage(language);
+            if (language != null) {
+                session.languages.add(language);
+            }
+        }
+
+        @Override
+        void putValue(String language, String translationKey, String value) {
+            try {
+                session.put(language, translationKey, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The state of one merge.
+     */
+    private final class Session {
+
+        final Set<String> languages = new TreeSet<>();
+        final List<Entry> buffer = new ArrayList<>();
+        long bufferSize = 0;
+        final List<Path> runs = new ArrayList<>();
+        final List<Path> keyRuns = new ArrayList<>();
+        final List<Path> files = new ArrayList<>();
+        int source;
+
+        void put(String language, String key, String value) throws IOException {
+            buffer.add(new Entry(language, key, value, source));
+            bufferSize += ENTRY_OVERHEAD + 2L * (key.length() + value.length());
+            if (bufferSize >= memoryLimit) {
+                spill();
+            }
+        }
+
+        /**
+         * Writes the buffer to a sorted run, and its keys to a key run.
+         */
+        void spill() throws IOException {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            buffer.sort(ORDER);
+            runs.add(writeRun(cursorOf(buffer.iterator()), false));
+            if (padMissingKeys) {
+                keyRuns.add(writeRun(cursorOf(keysOf(buffer).iterator()), false));
+            }
+            buffer.clear();
+            bufferSize = 0;
+            spilledRuns++;
+        }
+
+        /**
+         * Writes a cursor to a new run file, skipping repeated keys when
+         * {@code distinct} is set.
+         */
+        Path writeRun(Cursor cursor, boolean distinct) throws IOException {
+            Path file = tempDirectory != null ? Files.createTempFile(tempDirectory, "jls-merge", ".run")
+                    : Files.createTempFile("jls-merge", ".run");
+            files.add(file);
+            try (Cursor in = cursor; DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                Entry previous = null;
+                for (Entry entry = in.next(); entry != null; entry = in.next()) {
+                    if (distinct && previous != null && ORDER.compare(previous, entry) == 0) {
+                        continue;
+                    }
+                    writeString(out, entry.language);
+                    writeString(out, entry.key);
+                    writeString(out, entry.value);
+                    out.writeInt(entry.source);
+                    previous = entry;
+                }
+                out.writeInt(-1);
+            }
+            return file;
+        }
+
+        /**
+         * Merges runs until at most {@link #MAX_FAN_IN} are left, keeping
+         * their order.
+         */
+        void reduce(List<Path> sorted, boolean distinct) throws IOException {
+            while (sorted.size() > MAX_FAN_IN) {
+                List<Path> group = sorted.subList(0, MAX_FAN_IN);
+                Path merged = writeRun(new MergeCursor(group), distinct);
+                for (Path file : group) {
+                    Files.deleteIfExists(file);
+                }
+                group.clear();
+                sorted.add(0, merged);
+            }
+        }
+
+        void deleteFiles() {
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    if (LanguageSystem.isDebugMode()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    private final ConflictPolicy policy;
+    private final List<Path> inputs = new ArrayList<>();
+    private long memoryLimit = DEFAULT_MEMORY_LIMIT;
+    private Path tempDirectory = null;
+    private boolean padMissingKeys = true;
+    private int spilledRuns = 0;
+
+    /**
+     * Creates a merger.
+     *
+     * @param policy the value kept when inputs define the same key
+     */
+    public CatalogMerger(ConflictPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        this.policy = policy;
+    }
+
+    /**
+     * Adds an input file. Inputs are merged in the order they are added.
+     *
+     * @param file the language XML file
+     * @return this merger
+     */
+    public CatalogMerger add(Path file) {
+        inputs.add(file);
+        return this;
+    }
+
+    /**
+     * Sets the estimated memory used to buffer translations before they are
+     * spilled to a run file. The default is 32 MB.
+     *
+     * @param bytes the memory limit, in bytes
+     * @return this merger
+     */
+    public CatalogMerger setMemoryLimit(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("memory limit must be positive");
+        }
+        this.memoryLimit = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the directory of the run files.
+     *
+     * @param directory the directory, or {@code null} for the default
+     * temporary directory
+     * @return this merger
+     */
+    public CatalogMerger setTempDirectory(Path directory) {
+        this.tempDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Sets whether keys missing in a language are written with an empty
+     * value, as {@link LanguageSystem.Builder} does. Enabled by default.
+     *
+     * @param pad false to write only the keys defined in each language
+     * @return this merger
+     */
+    public CatalogMerger setPadMissingKeys(boolean pad) {
+        this.padMissingKeys = pad;
+        return this;
+    }
+
+    /**
+     * Returns the number of runs spilled to disk by the last merge, or 0 if
+     * it fitted in memory.
+     *
+     * @return the number of spilled runs
+     */
+    public int getSpilledRuns() {
+        return spilledRuns;
+    }
+
+    /**
+     * Merges the inputs into a file.
+     *
+     * @param output the merged XML file
+     * @return the number of translations written, including padded keys
+     * @throws IOException if an input cannot be read or parsed, the output
+     * cannot be written, or values conflict under {@link ConflictPolicy#FAIL}
+     */
+    public synchronized long mergeTo(Path output) throws IOException {
+        spilledRuns = 0;
+        Session session = new Session();
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                session.source = i;
+                read(session, inputs.get(i).toAbsolutePath().toUri().toURL(), new HashSet<>());
+            }
+            Cursor entries;
+            KeyList keys = null;
+            if (session.runs.isEmpty()) {
+                session.buffer.sort(ORDER);
+                entries = cursorOf(session.buffer.iterator());
+                if (padMissingKeys) {
+                    List<Entry> keyEntries = keysOf(session.buffer);
+                    keys = () -> cursorOf(keyEntries.iterator());
+                }
+            } else {
+                session.spill();
+                session.reduce(session.runs, false);
+                entries = new MergeCursor(session.runs);
+                if (padMissingKeys) {
+                    session.reduce(session.keyRuns, true);
+                    List<Path> keyFile = List.of(session.writeRun(new MergeCursor(session.keyRuns), true));
+                    keys = () -> new MergeCursor(keyFile);
+                }
+            }
+            try (Cursor in = entries) {
+                return write(output, session.languages, in, keys);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            session.deleteFiles();
+        }
+    }
+
+    /**
+     * Reopens the sorted keys of all languages, for padding.
+     */
+    private interface KeyList {
+
+        Cursor open() throws IOException;
+    }
+
+    /**
+     * Streams a file and the files it imports into the session. A file
+     * imported twice by the same input is read once.
+     */
+    private void read(Session session, URL url, Set<String> visited) throws IOException {
+        if (!visited.add(url.toString())) {
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(url.openStream(), BUFFER_SIZE)) {
+            LanguageStreamReader.parse(in, new Sink(session, url, visited));
+        }
+    }
+
+    private long write(Path output, Set<String> languages, Cursor entries, KeyList keys) throws IOException {
+        Path temp = output.toAbsolutePath().resolveSibling(output.getFileName() + ".tmp");
+        long written = 0;
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("<!--%s %s-->\n".formatted(Info.LIB_NAME, Info.VERSION));
+            writer.write("<!--LANGUAGES: " + languages.size() + "-->\n");
+            writer.write("<languages>\n");
+            Entry next = entries.next();
+            for (String language : languages) {
+                writer.write("  <language value=\"" + Builder.escapeXml(language) + "\">\n");
+                try (Cursor padding = keys != null ? keys.open() : null) {
+                    Entry pad = padding != null ? padding.next() : null;
+                    while (next != null && next.language.equals(language)) {
+                        String key = next.key;
+                        String resolved = null;
+                        String pending = null;
+                        int pendingSource = -1;
+                        for (; next != null && next.language.equals(language) && next.key.equals(key); next = entries.next()) {
+                            if (next.source != pendingSource && pending != null) {
+                                resolved = resolve(language, key, resolved, pending);
+                            }
+                            pending = next.value;
+                            pendingSource = next.source;
+                        }
+                        resolved = resolve(language, key, resolved, pending);
+                        for (; pad != null && pad.key.compareTo(key) <= 0; pad = padding.next()) {
+                            if (!pad.key.equals(key)) {
+                                writeTranslation(writer, pad.key, "");
+                                written++;
+                            }
+                        }
+                        writeTranslation(writer, key, resolved);
+                        written++;
+                    }
+                    for (; pad != null; pad = padding.next()) {
+                        writeTranslation(writer, pad.key, "");
+                        written++;
+                    }
+                }
+                writer.write("  </language>\n");
+            }
+            writer.write("</languages>");
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return written;
+    }
+
+    private String resolve(String language, String key, String existing, String incoming) throws IOException {
+        String value = policy.resolve(existing, incoming);
+        if (value == null) {
+            throw new IOException("Conflicting values for key '" + key + "' of language '" + language + "'");
+        }
+        return value;
+    }
+
+    private static void writeTranslation(Writer writer, String key, String value) throws IOException {
+        writer.write("    <translated value=\"");
+        writer.write(Builder.escapeXml(key));
+        writer.write("\">\n      <value>");
+        writer.write(Builder.escapeXml(value));
+        writer.write("</value>\n    </translated>\n");
+    }
+
+    /**
+     * Returns the distinct keys of translations as sorted entries of no
+     * language.
+     */
+    private static List<Entry> keysOf(List<Entry> entries) {
+        Set<String> keys = new TreeSet<>();
+        for (Entry entry : entries) {
+            keys.add(entry.key);
+        }
+        List<Entry> keyEntries = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            keyEntries.add(new Entry("", key, "", 0));
+        }
+        return keyEntries;
+    }
+
+    private static Cursor cursorOf(Iterator<Entry> iterator) {
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
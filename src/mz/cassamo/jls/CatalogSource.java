@@ -0,0 +1,77 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A source of translations, such as an XML file, a classpath resource or a
+ * database.
+ *
+ * <p>
+ * Built-in sources are {@link XmlFileCatalogSource},
+ * {@link XmlResourceCatalogSource} and {@link JdbcCatalogSource}. Other sources
+ * only need to implement {@link #load()}; the remaining methods can be
+ * overridden when the source can answer them more cheaply than by loading
+ * everything.
+ * </p>
+ *
+ * <pre>{@code
+ * CatalogSource source = new JdbcCatalogSource(dataSource);
+ * LanguageSystem.initialize("english", source);
+ * // later, e.g. from a scheduled task:
+ * LanguageSystem.refresh(); // reloads only if the source version changed
+ * }</pre>
+ *
+ * Keys use the same form as keys read from XML files: tense forms are stored
+ * as {@code key~tense} and plural forms as {@code key#category}.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public interface CatalogSource {
+
+    /**
+     * Loads all translations of this source.
+     *
+     * @return the loaded catalog
+     * @throws IOException if the source cannot be read
+     */
+    Catalog load() throws IOException;
+
+    /**
+     * Returns the languages of this source.
+     *
+     * @return the language names
+     * @throws IOException if the source cannot be read
+     */
+    default Set<String> getLanguages() throws IOException {
+        return load().getLanguages();
+    }
+
+    /**
+     * Loads the translations of a single language.
+     *
+     * @param language the language to load
+     * @return the translations by key, or {@code null} if the language does
+     * not exist
+     * @throws IOException if the source cannot be read
+     */
+    default Map<String, String> loadLanguage(String language) throws IOException {
+        return load().getTranslations(language);
+    }
+
+    /**
+     * Returns the version of the content of this source. The version changes
+     * whenever the content changes, so a refresh can be skipped when it is
+     * unchanged.
+     *
+     * @return the current version, or -1 if this source has no version (the
+     * content is then always reloaded)
+     * @throws IOException if the source cannot be read
+     */
+    default long getVersion() throws IOException {
+        return -1;
+    }
+}
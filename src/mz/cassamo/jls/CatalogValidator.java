@@ -0,0 +1,245 @@
+package mz.cassamo.jls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Checks the consistency of translations across languages and produces a
+ * {@link ValidationReport}.
+ *
+ * <p>
+ * The validator reports:
+ * </p>
+ * <ul>
+ * <li>keys defined in some languages but missing in others;</li>
+ * <li>empty values, which include keys padded by the builder;</li>
+ * <li>values whose number of placeholders ({@code $1}, {@code $2}, ...)
+ * differs from the reference language;</li>
+ * <li>tense forms defined by only one language;</li>
+ * <li>keys defined more than once, when the duplicates are known (files
+ * loaded by the {@link LanguageSystem} or the builder).</li>
+ * </ul>
+ *
+ * <p>
+ * Plural forms are compared as one key, since languages use different plural
+ * categories; placeholders of plural keys are compared on their
+ * {@code other} form. Each language is checked on its own thread, so large
+ * catalogs are validated in a few seconds.
+ * </p>
+ *
+ * <pre>{@code
+ * ValidationReport report = new CatalogValidator()
+ *         .setReferenceLanguage("english")
+ *         .validate(LanguageSystem.getCatalog());
+ * report.writeJson(Paths.get("translations-report.json"));
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class CatalogValidator {
+
+    private String referenceLanguage = null;
+    private boolean parallel = true;
+
+    /**
+     * Sets the language whose placeholders are taken as the expected ones.
+     * By default the language with the most keys is used.
+     *
+     * @param referenceLanguage the reference language, or {@code null}
+     * @return this validator
+     */
+    public CatalogValidator setReferenceLanguage(String referenceLanguage) {
+        this.referenceLanguage = referenceLanguage;
+        return this;
+    }
+
+    /**
+     * Sets whether languages are checked in parallel. Enabled by default.
+     *
+     * @param parallel true to check languages in parallel
+     * @return this validator
+     */
+    public CatalogValidator setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Validates a catalog.
+     *
+     * @param catalog the catalog to validate
+     * @return the report
+     */
+    public ValidationReport validate(Catalog catalog) {
+        return validate(catalog.getTranslations(), Collections.emptyMap());
+    }
+
+    /**
+     * Validates translations grouped by language.
+     *
+     * @param translations the translations to validate
+     * @return the report
+     */
+    public ValidationReport validate(Map<String, ? extends Map<String, String>> translations) {
+        return validate(translations, Collections.emptyMap());
+    }
+
+    /**
+     * Validates translations grouped by language, including the keys that
+     * were defined more than once while loading them.
+     */
+    ValidationReport validate(Map<String, ? extends Map<String, String>> translations, Map<String, Set<String>> duplicates) {
+        long start = System.nanoTime();
+
+        List<LanguageInfo> infos = stream(new ArrayList<>(translations.entrySet()))
+                .map(entry -> new LanguageInfo(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+
+        Map<String, Integer> presence = new HashMap<>();
+        int entries = 0;
+        for (LanguageInfo info : infos) {
+            entries += info.size;
+            for (String key : info.keys) {
+                presence.merge(key, 1, Integer::sum);
+            }
+        }
+        LanguageInfo reference = referenceOf(infos);
+
+        List<ValidationReport.Issue> issues = stream(infos)
+                .flatMap(info -> info.check(presence, infos.size(), reference,
+                        duplicates.getOrDefault(info.language, Collections.emptySet())).stream())
+                .collect(Collectors.toList());
+
+        return new ValidationReport(infos.size(), entries, issues, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private <T> Stream<T> stream(List<T> list) {
+        return parallel ? list.parallelStream() : list.stream();
+    }
+
+    private LanguageInfo referenceOf(List<LanguageInfo> infos) {
+        LanguageInfo reference = null;
+        for (LanguageInfo info : infos) {
+            if (info.language.equals(referenceLanguage)) {
+                return info;
+            }
+            if (reference == null || info.keys.size() > reference.keys.size()) {
+                reference = info;
+            }
+        }
+        return reference;
+    }
+
+    /**
+     * Returns the key used to compare a translation across languages: plural
+     * forms share the key {@code key#}.
+     */
+    static String logicalKey(String translationKey) {
+        if (Catalog.PluralTable.categoryOf(translationKey) < 0) {
+            return translationKey;
+        }
+        return translationKey.substring(0, translationKey.lastIndexOf(PluralRules.SEPARATOR) + 1);
+    }
+
+    /**
+     * The keys and placeholder counts of one language.
+     */
+    private static final class LanguageInfo {
+
+        private final String language;
+        private final int size;
+        private final Set<String> keys;
+        /**
+         * Placeholder counts by logical key, for values with placeholders.
+         */
+        private final Map<String, Integer> placeholders = new HashMap<>();
+        private final List<ValidationReport.Issue> issues = new ArrayList<>();
+
+        LanguageInfo(String language, Map<String, String> translations) {
+            this.language = language;
+            this.size = translations.size();
+            this.keys = new HashSet<>(translations.size() * 4 / 3 + 1);
+            for (Map.Entry<String, String> entry : translations.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                String logical = logicalKey(key);
+                keys.add(logical);
+                if (value == null || value.isEmpty()) {
+                    issues.add(new ValidationReport.Issue(ValidationReport.Type.EMPTY_VALUE, language, key,
+                            "Empty value; the translation is missing or was padded by the builder"));
+                    continue;
+                }
+                boolean plural = !logical.equals(key);
+                if (plural && Catalog.PluralTable.categoryOf(key) != PluralRules.OTHER) {
+                    continue;
+                }
+                if (value.indexOf('$') >= 0) {
+                    int count = LanguageFormatter.countPlaceholders(value);
+                    if (count > 0) {
+                        placeholders.put(logical, count);
+                    }
+                }
+            }
+        }
+
+        List<ValidationReport.Issue> check(Map<String, Integer> presence, int languages, LanguageInfo reference, Set<String> duplicates) {
+            if (languages > 1) {
+                for (Map.Entry<String, Integer> entry : presence.entrySet()) {
+                    String key = entry.getKey();
+                    int count = entry.getValue();
+                    if (count == languages) {
+                        continue;
+                    }
+                    boolean tense = key.indexOf('~') > 0;
+                    if (keys.contains(key)) {
+                        if (tense && count == 1) {
+                            issues.add(new ValidationReport.Issue(ValidationReport.Type.UNUSED_TENSE, language, key,
+                                    "Tense '" + key.substring(key.indexOf('~') + 1) + "' is not defined in any other language"));
+                        }
+                    } else if (!tense || count > 1) {
+                        issues.add(new ValidationReport.Issue(ValidationReport.Type.MISSING_KEY, language, key,
+                                "Defined in " + count + " of " + languages + " languages"));
+                    }
+                }
+            }
+            if (reference != null && reference != this) {
+                checkPlaceholders(reference);
+            }
+            for (String key : duplicates) {
+                issues.add(new ValidationReport.Issue(ValidationReport.Type.DUPLICATE_KEY, language, key,
+                        "Defined more than once; the last definition is used"));
+            }
+            return issues;
+        }
+
+        private void checkPlaceholders(LanguageInfo reference) {
+            for (Map.Entry<String, Integer> entry : placeholders.entrySet()) {
+                if (reference.keys.contains(entry.getKey())) {
+                    int expected = reference.placeholders.getOrDefault(entry.getKey(), 0);
+                    if (expected != entry.getValue()) {
+                        placeholderIssue(entry.getKey(), entry.getValue(), expected, reference);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> entry : reference.placeholders.entrySet()) {
+                if (keys.contains(entry.getKey()) && !placeholders.containsKey(entry.getKey())) {
+                    placeholderIssue(entry.getKey(), 0, entry.getValue(), reference);
+                }
+            }
+        }
+
+        private void placeholderIssue(String key, int found, int expected, LanguageInfo reference) {
+            issues.add(new ValidationReport.Issue(ValidationReport.Type.PLACEHOLDER_MISMATCH, language, key,
+                    found + " placeholder(s), " + expected + " in " + reference.language));
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package mz.cassamo.jls;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import javax.swing.JMenu;
+import javax.swing.SwingUtilities;
+
+/**
+ * Registry of the components translated automatically by
+ * {@link LanguageSystem}.
+ *
+ * <p>
+ * Each component has one binding: its key, the suppliers of its
+ * placeholder values, and the text last applied to it. When the language or
+ * the translations change, the text of every binding is resolved again, and
+ * {@code setText} is only called when it differs from the text last applied,
+ * so keys that read the same in both languages cost no layout. The
+ * {@code setText} method of each component class is looked up once. Swing
+ * components queue their own revalidation and repaint, which the
+ * {@link javax.swing.RepaintManager} coalesces, so a pass adds no layout
+ * work of its own.
+ * </p>
+ *
+ * <p>
+ * A container tree is bound in one pass: every component the
+ * {@link KeyStrategy} returns a key for is registered, then all texts are
+ * applied together. A {@link ContainerListener} on each container of the
+ * tree binds the components added later and releases the ones removed.
+ * Components bound one by one keep their binding.
+ * </p>
+ *
+ * <p>
+ * The monitor of the registry only guards its maps. Components are walked,
+ * listened to and updated outside it, because Swing takes the AWT tree lock
+ * and the tree listeners run under that lock.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class ComponentBindings {
+
+    private static final Supplier<?>[] NO_ARGUMENTS = new Supplier<?>[0];
+
+    /**
+     * The {@code setText(String)} method of each component class, or
+     * {@code null}.
+     */
+    private static final ClassValue<Method> SET_TEXT = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                return type.getMethod("setText", String.class);
+            } catch (NoSuchMethodException | SecurityException e) {
+                return null;
+            }
+        }
+    };
+
+    /**
+     * A translated component.
+     */
+    private static final class Binding {
+
+        final Component component;
+        final String key;
+        final Supplier<?>[] arguments;
+        final Method setText;
+        /**
+         * The tree that bound the component, or {@code null} if it was bound
+         * on its own.
+         */
+        final TreeBinding tree;
+        volatile boolean applied = false;
+        volatile String text;
+
+        Binding(Component component, String key, Supplier<?>[] arguments, TreeBinding tree) {
+            this.component = component;
+            this.key = key;
+            this.arguments = arguments;
+            this.setText = SET_TEXT.get(component.getClass());
+            this.tree = tree;
+        }
+
+        /**
+         * Resolves the text of the binding in the current language.
+         */
+        String resolve() {
+            if (arguments.length == 0) {
+                return LanguageSystem.get(key);
+            }
+            String[] values = new String[arguments.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = String.valueOf(arguments[i].get());
+            }
+            return LanguageSystem.getf(key, values);
+        }
+    }
+
+    /**
+     * Binds the components of a tree, following its changes.
+     */
+    private final class TreeBinding implements ContainerListener {
+
+        final KeyStrategy strategy;
+        /**
+         * Set once the tree is unbound, so late events are ignored.
+         */
+        volatile boolean released = false;
+
+        TreeBinding(KeyStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void componentAdded(ContainerEvent e) {
+            // Runs under the AWT tree lock: the monitor is only taken
+            // around the maps, never while calling into Swing.
+            if (!released) {
+                apply(register(e.getChild(), this));
+            }
+        }
+
+        @Override
+        public void componentRemoved(ContainerEvent e) {
+            release(e.getChild(), this);
+        }
+    }
+
+    /**
+     * Bindings by component, in registration order.
+     */
+    private final Map<Component, Binding> bindings = new LinkedHashMap<>();
+    /**
+     * Trees by root container.
+     */
+    private final Map<Container, TreeBinding> trees = new IdentityHashMap<>();
+
+    /**
+     * Checks if the class of a component has a {@code setText(String)}
+     * method.
+     */
+    static boolean canSetText(Component component) {
+        return component != null && SET_TEXT.get(component.getClass()) != null;
+    }
+
+    /**
+     * Binds a component to a key, replacing its previous binding, and applies
+     * its text.
+     *
+     * @param arguments the suppliers of the placeholder values, read on every
+     * update
+     */
+    void bind(Component component, String key, Supplier<?>... arguments) {
+        if (component == null) {
+            return;
+        }
+        Binding binding = new Binding(component, key, arguments != null ? arguments.clone() : NO_ARGUMENTS, null);
+        synchronized (this) {
+            bindings.put(component, binding);
+        }
+        apply(Collections.singletonList(binding));
+    }
+
+    /**
+     * Binds every component of a tree the strategy returns a key for, and
+     * the components added to the tree later, then applies their texts. A
+     * tree bound again is released first.
+     */
+    void bindTree(Container root, KeyStrategy strategy) {
+        TreeBinding tree = new TreeBinding(strategy);
+        TreeBinding previous;
+        synchronized (this) {
+            previous = trees.put(root, tree);
+        }
+        if (previous != null) {
+            previous.released = true;
+            release(root, previous);
+        }
+        apply(register(root, tree));
+    }
+
+    /**
+     * Releases a tree bound with {@link #bindTree(Container, KeyStrategy)}:
+     * its listeners and the bindings it created are removed.
+     *
+     * @return true if the tree was bound
+     */
+    boolean unbindTree(Container root) {
+        TreeBinding tree;
+        synchronized (this) {
+            tree = trees.remove(root);
+        }
+        if (tree == null) {
+            return false;
+        }
+        tree.released = true;
+        release(root, tree);
+        return true;
+    }
+
+    /**
+     * Walks a tree once, listening to its containers, and binds the
+     * components the strategy returns a key for. Swing is only read outside
+     * the monitor.
+     *
+     * @return the new bindings
+     */
+    private List<Binding> register(Component root, TreeBinding tree) {
+        List<Component> components = walk(root, tree, true);
+        String[] keys = new String[components.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Component component = components.get(i);
+            keys[i] = canSetText(component) ? tree.strategy.keyOf(component) : null;
+        }
+        List<Binding> added = new ArrayList<>();
+        synchronized (this) {
+            if (tree.released) {
+                return added;
+            }
+            for (int i = 0; i < keys.length; i++) {
+                Component component = components.get(i);
+                Binding existing = bindings.get(component);
+                if (keys[i] != null && (existing == null || existing.tree != null && (existing.tree != tree || !keys[i].equals(existing.key)))) {
+                    Binding binding = new Binding(component, keys[i], NO_ARGUMENTS, tree);
+                    bindings.put(component, binding);
+                    added.add(binding);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes the listeners of a tree and the bindings it created.
+     */
+    private void release(Component root, TreeBinding tree) {
+        List<Component> components = walk(root, tree, false);
+        synchronized (this) {
+            for (Component component : components) {
+                Binding binding = bindings.get(component);
+                if (binding != null && binding.tree == tree) {
+                    bindings.remove(component);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the components of a tree, adding or removing the listener of the
+     * tree on each container.
+     */
+    private static List<Component> walk(Component root, TreeBinding tree, boolean listen) {
+        List<Component> components = new ArrayList<>();
+        ArrayDeque<Component> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Component component = pending.pop();
+            components.add(component);
+            if (component instanceof Container) {
+                Container container = (Container) component;
+                if (!listen) {
+                    container.removeContainerListener(tree);
+                } else if (!Arrays.asList(container.getContainerListeners()).contains(tree)) {
+                    container.addContainerListener(tree);
+                }
+                Component[] children = container.getComponents();
+                for (int i = children.length - 1; i >= 0; i--) {
+                    pending.push(children[i]);
+                }
+                if (component instanceof JMenu) {
+                    // Menu items are children of the popup menu.
+                    pending.push(((JMenu) component).getPopupMenu());
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Removes the binding of a component. Its text is left as is.
+     *
+     * @return true if the component was bound
+     */
+    synchronized boolean unbind(Component component) {
+        return bindings.remove(component) != null;
+    }
+
+    /**
+     * Checks if a component is bound.
+     */
+    synchronized boolean isBound(Component component) {
+        return bindings.containsKey(component);
+    }
+
+    /**
+     * Applies the current text of every binding. The bindings are copied
+     * under the monitor and updated outside it.
+     *
+     * @return the number of components whose text changed
+     */
+    int applyAll() {
+        List<Binding> targets;
+        synchronized (this) {
+            if (bindings.isEmpty()) {
+                return 0;
+            }
+            targets = new ArrayList<>(bindings.values());
+        }
+        return apply(targets);
+    }
+
+    /**
+     * Applies the current text of every binding on the event dispatch
+     * thread, for updates made from background threads.
+     *
+     * @return the future completed with the number of components whose text
+     * changed, once they were updated
+     */
+    CompletableFuture<Integer> applyAllLater() {
+        synchronized (this) {
+            if (bindings.isEmpty()) {
+                return CompletableFuture.completedFuture(0);
+            }
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            return CompletableFuture.completedFuture(applyAll());
+        }
+        CompletableFuture<Integer> applied = new CompletableFuture<>();
+        SwingUtilities.invokeLater(() -> {
+            try {
+                applied.complete(applyAll());
+            } catch (RuntimeException e) {
+                applied.completeExceptionally(e);
+            }
+        });
+        return applied;
+    }
+
+    /**
+     * Sets the texts of bindings. Must not be called while holding the monitor: Swing takes the AWT tree
+     * lock, under which the tree listeners take the monitor.
+     */
+    private int apply(Collection<Binding> targets) {
+        int updated = 0;
+        for (Binding binding : targets) {
+            if (binding.setText == null) {
+                if (LanguageSystem.isDebugMode()) {
+                    System.err.println("LanguageSystemDebugOutput\nError: Method 'setText(String)' not found in component " + binding.component + ".");
+                }
+                continue;
+            }
+            String text = binding.resolve();
+            if (binding.applied && Objects.equals(text, binding.text)) {
+                continue;
+            }
+            try {
+                binding.setText.invoke(binding.component, text);
+                binding.applied = true;
+                binding.text = text;
+                updated++;
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                if (LanguageSystem.isDebugMode()) {
+                    System.err.println("LanguageSystemDebugOutput\n");
+                    e.printStackTrace();
+                }
+            }
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,54 @@
+package mz.cassamo.jls;
+
+/**
+ * Decides which value is kept when several inputs of a {@link CatalogMerger}
+ * define the same key of the same language. Inputs are merged in the order
+ * they were added; inside one input, the last definition of a key is used,
+ * as when loading the file.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public enum ConflictPolicy {
+
+    /**
+     * The value of the input added last wins, like loading the files one
+     * after another into a {@link LanguageSystem.Builder}.
+     */
+    OVERWRITE,
+    /**
+     * The value of the input added first wins, so later inputs only add
+     * missing keys.
+     */
+    KEEP_EXISTING,
+    /**
+     * The value of the input added last wins, unless it is empty.
+     */
+    KEEP_NON_EMPTY,
+    /**
+     * Different values for the same key stop the merge with an
+     * {@link java.io.IOException}.
+     */
+    FAIL;
+
+    /**
+     * Returns the value kept for a key defined by an earlier and a later
+     * input, or {@code null} if the values conflict under {@link #FAIL}.
+     */
+    String resolve(String existing, String incoming) {
+        if (existing == null) {
+            return incoming;
+        }
+        switch (this) {
+            case KEEP_EXISTING:
+                return existing;
+            case KEEP_NON_EMPTY:
+                return incoming.isEmpty() ? existing : incoming;
+            case FAIL:
+                return existing.equals(incoming) ? existing : null;
+            default:
+                return incoming;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * The file formats written by {@link Builder#export(java.nio.file.Path, java.util.Set)},
+ * one file per language.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public enum ExportFormat {
+
+    /**
+     * A flat JSON object sorted by key, as served by {@link BundleServer}:
+     * {@code english.json}.
+     */
+    JSON("json", StandardCharsets.UTF_8) {
+        @Override
+        void write(Writer writer, String language, Map<String, String> translations) throws IOException {
+            StringBuilder sb = new StringBuilder(256);
+            writer.write("{\n");
+            boolean first = true;
+            for (Map.Entry<String, String> entry : translations.entrySet()) {
+                sb.setLength(0);
+                sb.append(first ? "  " : ",\n  ");
+                ValidationReport.appendJsonString(sb, entry.getKey());
+                sb.append(": ");
+                ValidationReport.appendJsonString(sb, entry.getValue());
+                writer.append(sb);
+                first = false;
+            }
+            writer.write(first ? "}\n" : "\n}\n");
+        }
+    },
+    /**
+     * A Java properties file in ISO-8859-1 with unicode escapes, readable by
+     * {@link java.util.Properties} and {@link java.util.ResourceBundle} on
+     * every Java version: {@code english.properties}.
+     */
+    PROPERTIES("properties", StandardCharsets.ISO_8859_1) {
+        @Override
+        void write(Writer writer, String language, Map<String, String> translations) throws IOException {
+            StringBuilder sb = new StringBuilder(256);
+            writer.write("# " + Info.LIB_NAME + " " + Info.VERSION + "\n");
+            for (Map.Entry<String, String> entry : translations.entrySet()) {
+                sb.setLength(0);
+                appendProperty(sb, entry.getKey(), true);
+                sb.append('=');
+                appendProperty(sb, entry.getValue(), false);
+                sb.append('\n');
+                writer.append(sb);
+            }
+        }
+    },
+    /**
+     * A language file in the format read by {@link LanguageSystem}, which can
+     * be imported with {@code <import-language>}: {@code english.xml}.
+     */
+    XML("xml", StandardCharsets.UTF_8) {
+        @Override
+        void write(Writer writer, String language, Map<String, String> translations) throws IOException {
+            StringBuilder sb = new StringBuilder(256);
+            writer.write("<!--" + Info.LIB_NAME + " " + Info.VERSION + "-->\n<languages>\n");
+            writer.write("  <language value=\"" + Builder.escapeXml(language) + "\">\n");
+            for (Map.Entry<String, String> entry : translations.entrySet()) {
+                sb.setLength(0);
+                sb.append("    <translated value=\"").append(Builder.escapeXml(entry.getKey())).append("\">\n");
+                sb.append("      <value>").append(Builder.escapeXml(entry.getValue())).append("</value>\n");
+                sb.append("    </translated>\n");
+                writer.append(sb);
+            }
+            writer.write("  </language>\n</languages>\n");
+        }
+    };
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String extension;
+    private final Charset charset;
+
+    ExportFormat(String extension, Charset charset) {
+        this.extension = extension;
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the file extension of the format, without the dot.
+     *
+     * @return the extension, such as {@code json}
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Writes the translations of a language, sorted by key.
+     */
+    abstract void write(Writer writer, String language, Map<String, String> translations) throws IOException;
+
+    /**
+     * Escapes a key or value of a properties file.
+     */
+    private static void appendProperty(StringBuilder sb, String value, boolean key) {
+        if (value == null) {
+            // Like Builder.escapeXml, a null value is written empty.
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                case ' ':
+                    if (key || i == 0) {
+                        sb.append('\\');
+                    }
+                    sb.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append("\\u").append(HEX[(c >> 12) & 0xf]).append(HEX[(c >> 8) & 0xf])
+                                .append(HEX[(c >> 4) & 0xf]).append(HEX[c & 0xf]);
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+    }
+}
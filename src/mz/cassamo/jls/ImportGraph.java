@@ -0,0 +1,349 @@
+package mz.cassamo.jls;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+
+/**
+ * Follows the {@code <import-language>} graph of a load.
+ *
+ * <p>
+ * Each file (or classpath resource) is a node keyed by its canonical path.
+ * A file is parsed on its own, without its imports, into a list of parts:
+ * the translations defined between two imports, and the imports themselves.
+ * Parsed files are kept in a cache shared by all loads and reused while
+ * their modification time and size do not change and they were parsed by
+ * the current parser, so reloading a modular catalog only parses the files
+ * that were edited.
+ * </p>
+ *
+ * <p>
+ * The cache holds at most {@value #MAX_CACHED_BYTES} bytes of source files,
+ * least recently used first dropped. Only the imports of other files are
+ * remembered, to compute versions without parsing them. Nothing is cached
+ * while off-heap storage is enabled, so the parsed values do not stay on
+ * the heap, and files and JAR entries are the only sources cached, since
+ * they are the only ones that can be revalidated.
+ * </p>
+ *
+ * <p>
+ * Within one load every file is merged at most once, at its first import,
+ * so shared fragments imported by several files are not merged again. An
+ * import of a file that is still being merged (a cycle) is skipped and
+ * reported in {@link #getCycles()} instead of recursing forever.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class ImportGraph {
+
+    /**
+     * A part of a parsed file: either the translations defined between two
+     * imports, or an import.
+     */
+    static final class Part {
+
+        final LanguageHandler values;
+        final String importPath;
+
+        Part(LanguageHandler values, String importPath) {
+            this.values = values;
+            this.importPath = importPath;
+        }
+    }
+
+    /**
+     * A parsed file, without its imports merged.
+     */
+    private static final class Node {
+
+        final long modified;
+        final long size;
+        final LanguageSystem.ParserType parser;
+        final List<String> imports;
+        /**
+         * The parts of the file, or {@code null} if only its imports are
+         * cached.
+         */
+        final List<Part> parts;
+
+        Node(long modified, long size, LanguageSystem.ParserType parser, List<String> imports, List<Part> parts) {
+            this.modified = modified;
+            this.size = size;
+            this.parser = parser;
+            this.imports = imports;
+            this.parts = parts;
+        }
+
+        Node withoutParts() {
+            return parts != null ? new Node(modified, size, parser, imports, null) : this;
+        }
+    }
+
+    /**
+     * Maximum total size of the source files whose parts are cached.
+     */
+    static final long MAX_CACHED_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Parsed files by canonical path (or URL for JAR resources), in access
+     * order. Guarded by itself.
+     */
+    private static final Map<String, Node> cache = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Total size of the source files whose parts are cached.
+     */
+    private static long cachedBytes = 0;
+
+    /**
+     * Files being merged, from the root to the current import.
+     */
+    private final Set<String> stack = new LinkedHashSet<>();
+    /**
+     * Files already merged in this load.
+     */
+    private final Set<String> merged = new HashSet<>();
+    private final List<String> cycles = new ArrayList<>();
+    private int parsed = 0;
+
+    /**
+     * Merges a file and, recursively, its imports into a handler.
+     *
+     * @param target the handler receiving the translations
+     * @param url the file to merge
+     * @throws IOException if the file cannot be read or parsed
+     */
+    void include(LanguageHandler target, URL url) throws IOException {
+        String key = keyOf(url);
+        if (stack.contains(key)) {
+            reportCycle(key);
+            return;
+        }
+        if (!merged.add(key)) {
+            return;
+        }
+        stack.add(key);
+        try {
+            for (Part part : node(key, url, true).parts) {
+                if (part.values != null) {
+                    target.merge(part.values);
+                } else {
+                    includeImport(target, url, part.importPath);
+                }
+            }
+        } finally {
+            stack.remove(key);
+        }
+    }
+
+    private void includeImport(LanguageHandler target, URL from, String path) {
+        try {
+            include(target, LanguageHandler.resolveImport(from, path));
+        } catch (IOException e) {
+            if (LanguageSystem.isDebugMode()) {
+                System.err.println("Error while importing file: " + path);
+            }
+        }
+    }
+
+    /**
+     * Computes a version of a file and, recursively, its imports, from their
+     * paths, modification times and sizes. Only files changed since they were
+     * last parsed are parsed again, to find their imports.
+     *
+     * @param url the root file
+     * @return the version, never -1
+     * @throws IOException if the root file cannot be read or parsed
+     */
+    static long versionOf(URL url) throws IOException {
+        long version = new ImportGraph().visit(url, 17);
+        return version != -1 ? version : 0;
+    }
+
+    private long visit(URL url, long version) throws IOException {
+        String key = keyOf(url);
+        if (stack.contains(key) || !merged.add(key)) {
+            return version;
+        }
+        stack.add(key);
+        try {
+            Node node = node(key, url, false);
+            version = (version * 31 + key.hashCode()) * 1000003 + node.modified;
+            version = version * 31 + node.size;
+            for (String importPath : node.imports) {
+                try {
+                    version = visit(LanguageHandler.resolveImport(url, importPath), version);
+                } catch (IOException e) {
+                    // Skipped by the load as well.
+                    version = version * 31 + importPath.hashCode();
+                }
+            }
+            return version;
+        } finally {
+            stack.remove(key);
+        }
+    }
+
+    private void reportCycle(String key) {
+        StringBuilder cycle = new StringBuilder();
+        boolean inCycle = false;
+        for (String file : stack) {
+            inCycle |= file.equals(key);
+            if (inCycle) {
+                cycle.append(file).append(" -> ");
+            }
+        }
+        cycle.append(key);
+        cycles.add(cycle.toString());
+        if (LanguageSystem.isDebugMode()) {
+            System.err.println("Import cycle skipped: " + cycle);
+        }
+    }
+
+    /**
+     * Returns the parsed file, from the cache if it did not change since it
+     * was parsed.
+     *
+     * @param needParts false if only the imports of the file are needed
+     */
+    private Node node(String key, URL url, boolean needParts) throws IOException {
+        long[] stamp = stampOf(key, url);
+        LanguageSystem.ParserType parser = LanguageSystem.getParserType();
+        if (stamp != null) {
+            synchronized (cache) {
+                Node node = cache.get(key);
+                if (node != null && node.modified == stamp[0] && node.size == stamp[1]
+                        && (!needParts || node.parts != null && node.parser == parser)) {
+                    return node;
+                }
+            }
+        }
+        List<Part> parts = LanguageHandler.parseParts(url);
+        parsed++;
+        List<String> imports = new ArrayList<>();
+        for (Part part : parts) {
+            if (part.importPath != null) {
+                imports.add(part.importPath);
+            }
+        }
+        if (stamp == null) {
+            return new Node(0, 0, parser, imports, parts);
+        }
+        Node node = new Node(stamp[0], stamp[1], parser, imports, parts);
+        store(key, node);
+        return node;
+    }
+
+    /**
+     * Caches a node, keeping its parts if the budget allows, and drops the
+     * parts of the least recently used files past the budget.
+     */
+    private static void store(String key, Node node) {
+        boolean keepParts = !LanguageReader.isOffHeapStorage() && node.size <= MAX_CACHED_BYTES;
+        synchronized (cache) {
+            Node previous = cache.put(key, keepParts ? node : node.withoutParts());
+            if (previous != null && previous.parts != null) {
+                cachedBytes -= previous.size;
+            }
+            if (!keepParts) {
+                return;
+            }
+            cachedBytes += node.size;
+            for (Map.Entry<String, Node> entry : cache.entrySet()) {
+                if (cachedBytes <= MAX_CACHED_BYTES) {
+                    break;
+                }
+                Node cached = entry.getValue();
+                if (cached.parts != null && cached != node) {
+                    entry.setValue(cached.withoutParts());
+                    cachedBytes -= cached.size;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the modification time and size of a file or JAR entry, or
+     * {@code null} for sources that cannot be revalidated.
+     */
+    private static long[] stampOf(String key, URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            BasicFileAttributes attributes = Files.readAttributes(new File(key).toPath(), BasicFileAttributes.class);
+            return new long[]{attributes.lastModifiedTime().toMillis(), attributes.size()};
+        }
+        if ("jar".equals(url.getProtocol())) {
+            URLConnection connection = url.openConnection();
+            if (connection instanceof JarURLConnection) {
+                JarURLConnection jar = (JarURLConnection) connection;
+                URL jarFile = jar.getJarFileURL();
+                JarEntry entry = jar.getJarEntry();
+                if (entry != null && "file".equals(jarFile.getProtocol())) {
+                    // The JAR itself may be replaced by a redeployment.
+                    return new long[]{LanguageHandler.toFile(jarFile).lastModified() ^ entry.getTime(), entry.getSize()};
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String keyOf(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            return LanguageHandler.toFile(url).getCanonicalPath();
+        }
+        return url.toExternalForm();
+    }
+
+    /**
+     * Returns the number of distinct files merged by this load.
+     *
+     * @return the number of files
+     */
+    int getFileCount() {
+        return merged.size();
+    }
+
+    /**
+     * Returns the number of files parsed by this load. The other files were
+     * served from the cache.
+     *
+     * @return the number of parsed files
+     */
+    int getParsedCount() {
+        return parsed;
+    }
+
+    /**
+     * Returns the import cycles skipped by this load, each as the list of
+     * files forming it, such as {@code a.xml -> b.xml -> a.xml}.
+     *
+     * @return the cycles
+     */
+    List<String> getCycles() {
+        return Collections.unmodifiableList(cycles);
+    }
+
+    /**
+     * Clears the cache of parsed files.
+     */
+    static void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            cachedBytes = 0;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+
+/**
+ * A {@link CatalogSource} reading translations from a database table through
+ * JDBC.
+ *
+ * <p>
+ * The table holds one row per translation. By default the table is
+ * {@code translations}, with the columns {@code language},
+ * {@code translation_key} and {@code translation_value}:
+ * </p>
+ *
+ * <pre>{@code
+ * CREATE TABLE translations (
+ *     language          VARCHAR(64)  NOT NULL,
+ *     translation_key   VARCHAR(255) NOT NULL,
+ *     translation_value TEXT,
+ *     version           BIGINT       NOT NULL DEFAULT 0,
+ *     PRIMARY KEY (language, translation_key)
+ * );
+ * }</pre>
+ *
+ * <p>
+ * Rows are streamed with a configurable fetch size, so the driver pages
+ * through the result instead of materializing it. Single languages can be
+ * fetched with {@link #loadLanguage(String)}, and a version query (for
+ * example {@code SELECT MAX(version) FROM translations}) can be set to make
+ * {@link LanguageSystem#refresh()} skip unchanged content.
+ * </p>
+ *
+ * <pre>{@code
+ * JdbcCatalogSource source = new JdbcCatalogSource(dataSource);
+ * source.setVersionQuery("SELECT MAX(version) FROM translations");
+ * LanguageSystem.initialize("english", source);
+ * }</pre>
+ *
+ * Works with any JDBC driver, including embedded databases such as H2 or
+ * SQLite.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public class JdbcCatalogSource implements CatalogSource {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final DataSource dataSource;
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final String table;
+    private final String languageColumn;
+    private final String keyColumn;
+    private final String valueColumn;
+
+    private int fetchSize = 1000;
+    private String versionQuery = null;
+
+    /**
+     * Creates a source for the default table and columns.
+     *
+     * @param dataSource the data source providing connections
+     */
+    public JdbcCatalogSource(DataSource dataSource) {
+        this(dataSource, "translations", "language", "translation_key", "translation_value");
+    }
+
+    /**
+     * Creates a source for a custom table.
+     *
+     * @param dataSource the data source providing connections
+     * @param table the table name
+     * @param languageColumn the column holding the language name
+     * @param keyColumn the column holding the translation key
+     * @param valueColumn the column holding the translation value
+     */
+    public JdbcCatalogSource(DataSource dataSource, String table, String languageColumn, String keyColumn, String valueColumn) {
+        this(dataSource, null, null, null, table, languageColumn, keyColumn, valueColumn);
+    }
+
+    /**
+     * Creates a source for the default table and columns, connecting through
+     * {@link DriverManager}.
+     *
+     * @param url the JDBC URL (e.g. {@code jdbc:h2:./translations})
+     * @param user the database user, or {@code null}
+     * @param password the database password, or {@code null}
+     */
+    public JdbcCatalogSource(String url, String user, String password) {
+        this(null, url, user, password, "translations", "language", "translation_key", "translation_value");
+    }
+
+    private JdbcCatalogSource(DataSource dataSource, String url, String user, String password,
+            String table, String languageColumn, String keyColumn, String valueColumn) {
+        this.dataSource = dataSource;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.table = identifier(table);
+        this.languageColumn = identifier(languageColumn);
+        this.keyColumn = identifier(keyColumn);
+        this.valueColumn = identifier(valueColumn);
+    }
+
+    private static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid SQL identifier: " + name);
+        }
+        return name;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database per round trip.
+     *
+     * @param fetchSize the fetch size, 1000 by default
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Gets the number of rows fetched from the database per round trip.
+     *
+     * @return the fetch size
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the query returning the version of the translations, as a single
+     * number in the first column of the first row (for example
+     * {@code SELECT MAX(version) FROM translations}).
+     *
+     * @param versionQuery the version query, or {@code null} if the table has
+     * no version
+     */
+    public void setVersionQuery(String versionQuery) {
+        this.versionQuery = versionQuery;
+    }
+
+    @Override
+    public Catalog load() throws IOException {
+        String sql = "SELECT " + languageColumn + ", " + keyColumn + ", " + valueColumn
+                + " FROM " + table + " ORDER BY " + languageColumn;
+        Map<String, Map<String, String>> translations = new HashMap<>();
+        try {
+            query(sql, null, new Rows() {
+                private String language = null;
+                private Map<String, String> languageMap = null;
+
+                @Override
+                public void read(ResultSet result) throws SQLException {
+                    String rowLanguage = result.getString(1);
+                    if (languageMap == null || !rowLanguage.equals(language)) {
+                        language = rowLanguage;
+                        languageMap = translations.computeIfAbsent(language, k -> new HashMap<>());
+                    }
+                    languageMap.put(result.getString(2), valueOf(result.getString(3)));
+                }
+            });
+        } catch (SQLException e) {
+            throw new IOException("Error while loading translations from " + table, e);
+        }
+        return Catalog.of(translations);
+    }
+
+    @Override
+    public Set<String> getLanguages() throws IOException {
+        String sql = "SELECT DISTINCT " + languageColumn + " FROM " + table;
+        Set<String> languages = new LinkedHashSet<>();
+        try {
+            query(sql, null, result -> languages.add(result.getString(1)));
+        } catch (SQLException e) {
+            throw new IOException("Error while loading languages from " + table, e);
+        }
+        return languages;
+    }
+
+    @Override
+    public Map<String, String> loadLanguage(String language) throws IOException {
+        String sql = "SELECT " + keyColumn + ", " + valueColumn
+                + " FROM " + table + " WHERE " + languageColumn + " = ?";
+        Map<String, String> languageMap = new HashMap<>();
+        try {
+            query(sql, language, result -> languageMap.put(result.getString(1), valueOf(result.getString(2))));
+        } catch (SQLException e) {
+            throw new IOException("Error while loading language " + language + " from " + table, e);
+        }
+        return languageMap.isEmpty() ? null : languageMap;
+    }
+
+    @Override
+    public long getVersion() throws IOException {
+        if (versionQuery == null) {
+            return -1;
+        }
+        try (Connection connection = connect();
+                PreparedStatement statement = connection.prepareStatement(versionQuery);
+                ResultSet result = statement.executeQuery()) {
+            return result.next() ? result.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new IOException("Error while reading the version of " + table, e);
+        }
+    }
+
+    /**
+     * Reads the rows of a result set.
+     */
+    private interface Rows {
+
+        void read(ResultSet result) throws SQLException;
+    }
+
+    /**
+     * Runs a query with the fetch size of this source, passing each row to
+     * {@code rows}.
+     *
+     * @param parameter the value of the single {@code ?} of the query, or
+     * {@code null} if it has none
+     */
+    private void query(String sql, String parameter, Rows rows) throws SQLException {
+        try (Connection connection = connect(); PreparedStatement statement = prepare(connection, sql)) {
+            if (parameter != null) {
+                statement.setString(1, parameter);
+            }
+            // Some drivers (e.g. PostgreSQL) only honour the fetch size outside auto-commit mode.
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try (ResultSet result = statement.executeQuery()) {
+                while (result.next()) {
+                    rows.read(result);
+                }
+            } finally {
+                if (autoCommit) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return dataSource != null ? dataSource.getConnection() : DriverManager.getConnection(url, user, password);
+    }
+
+    private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+    }
+
+    private static String valueOf(String value) {
+        return value != null ? value : "";
+    }
+
+    @Override
+    public String toString() {
+        return "jdbc:" + table;
+    }
+}
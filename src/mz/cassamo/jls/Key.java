@@ -0,0 +1,139 @@
+package mz.cassamo.jls;
+
+/**
+ * A typed translation key, generated by the {@link KeyProcessor} for every
+ * key of a language file annotated with {@link TranslationKeys}.
+ *
+ * <p>
+ * Each key knows its position in the {@link KeySet} of the generated class.
+ * The values of the whole set are resolved once for the active catalog and
+ * language, so {@link #get()} is an array access: no lowercasing and no
+ * hashing per call. The values are resolved again after the catalog or the
+ * language changes.
+ * </p>
+ *
+ * <pre>{@code
+ * @TranslationKeys("languages.xml")
+ * class Messages {
+ * }
+ *
+ * // generated: MessagesKeys.HELLO_WORLD, MessagesKeys.PRESENTATION, ...
+ * String title = MessagesKeys.HELLO_WORLD.get();
+ * String text = MessagesKeys.PRESENTATION.getf("Cassamo");
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class Key {
+
+    private final KeySet keySet;
+    private final int index;
+    private final int arity;
+    private final boolean plural;
+
+    Key(KeySet keySet, int index, int arity, boolean plural) {
+        this.keySet = keySet;
+        this.index = index;
+        this.arity = arity;
+        this.plural = plural;
+    }
+
+    /**
+     * Retrieves the translation of this key in the current language.
+     *
+     * @return the translated string, or null if the key is not found
+     */
+    public String get() {
+        return keySet.valueAt(index);
+    }
+
+    /**
+     * Retrieves the translation of this key in the current language, with a
+     * default value.
+     *
+     * @param default_value the value to return if the key is not found
+     * @return the translated string, or the default value
+     */
+    public String get(String default_value) {
+        String value = keySet.valueAt(index);
+        return value != null ? value : default_value;
+    }
+
+    /**
+     * Retrieves and formats the translation of this key.
+     *
+     * @param values the values to replace in the placeholders; see
+     * {@link #getArity()}
+     * @return the formatted translated string
+     */
+    public String getf(String... values) {
+        return LanguageFormatter.format(get("null"), values);
+    }
+
+    /**
+     * Retrieves and formats the plural form of this key for a count.
+     *
+     * @param n the count used to select the plural form
+     * @param values the values to replace in the placeholders; if none are
+     * given, the count is used as {@code $1}
+     * @return the formatted plural form
+     * @see LanguageSystem#getPlural(String, long, String...)
+     */
+    public String getPlural(long n, String... values) {
+        return LanguageSystem.getPlural(getName(), n, values);
+    }
+
+    /**
+     * Returns the translation key.
+     *
+     * @return the key, in lower case
+     */
+    public String getName() {
+        return keySet.lookupKeys()[index];
+    }
+
+    /**
+     * Returns the position of this key in its key set.
+     *
+     * @return the dense index of the key
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the number of placeholders of this key: the highest
+     * {@code $n} found in any language when the key was generated.
+     *
+     * @return the number of values expected by {@link #getf(String...)}
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * Checks if this key has plural forms, to be read with
+     * {@link #getPlural(long, String...)}.
+     *
+     * @return true for plural keys
+     */
+    public boolean isPlural() {
+        return plural;
+    }
+
+    /**
+     * Returns the key set this key belongs to.
+     *
+     * @return the key set
+     */
+    public KeySet getKeySet() {
+        return keySet;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
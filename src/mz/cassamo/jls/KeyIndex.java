@@ -0,0 +1,232 @@
+package mz.cassamo.jls;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The keys of one language of a {@link Catalog}, sorted, for prefix (namespace)
+ * lookups.
+ *
+ * <p>
+ * Keys under a prefix form a contiguous range of the sorted array, found with
+ * two binary searches. Ranges are returned as read-only views, so listing the
+ * keys or translations of a namespace such as {@code settings.} copies
+ * nothing. Keys of a range can also be looked up by their suffix, comparing
+ * the prefix and the suffix in place instead of concatenating them.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class KeyIndex {
+
+    private final String[] keys;
+
+    private KeyIndex(String[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Builds the index of a language.
+     */
+    static KeyIndex of(Map<String, String> translations) {
+        String[] keys = translations.keySet().toArray(new String[0]);
+        Arrays.sort(keys);
+        return new KeyIndex(keys);
+    }
+
+    /**
+     * Returns the number of keys.
+     */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the index of the first key starting with the prefix, or of the
+     * first key after it.
+     */
+    int from(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index after the last key starting with the prefix.
+     */
+    int to(String prefix, int from) {
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the key made of a prefix and a suffix, without concatenating
+     * them.
+     *
+     * @return the key as stored in the index, or {@code null} if not found
+     */
+    String find(String prefix, String suffix) {
+        int low = from(prefix);
+        int high = to(prefix, low) - 1;
+        int offset = prefix.length();
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareSuffix(keys[middle], offset, suffix);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return keys[middle];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares the part of a key after {@code offset} with a suffix, in the
+     * order of {@link String#compareTo(String)}.
+     */
+    private static int compareSuffix(String key, int offset, String suffix) {
+        int keyLength = key.length() - offset;
+        int length = Math.min(keyLength, suffix.length());
+        for (int i = 0; i < length; i++) {
+            char a = key.charAt(offset + i);
+            char b = suffix.charAt(i);
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return keyLength - suffix.length();
+    }
+
+    /**
+     * Returns the keys starting with a prefix, as a view.
+     */
+    List<String> keys(String prefix) {
+        int from = from(prefix);
+        return new Range(from, to(prefix, from));
+    }
+
+    /**
+     * Returns the translations whose keys start with a prefix, as a view.
+     */
+    Map<String, String> translations(String prefix, Map<String, String> languageMap) {
+        int from = from(prefix);
+        return new RangeMap(prefix, new Range(from, to(prefix, from)), languageMap);
+    }
+
+    /**
+     * A range of the sorted keys.
+     */
+    private final class Range extends AbstractList<String> {
+
+        private final int from;
+        private final int to;
+
+        Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return keys[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * The translations of a range of keys.
+     */
+    private static final class RangeMap extends AbstractMap<String, String> {
+
+        private final String prefix;
+        private final List<String> range;
+        private final Map<String, String> languageMap;
+
+        RangeMap(String prefix, List<String> range, Map<String, String> languageMap) {
+            this.prefix = prefix;
+            this.range = range;
+            this.languageMap = languageMap;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String && ((String) key).startsWith(prefix) ? languageMap.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && ((String) key).startsWith(prefix) && languageMap.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<String> keys = range.iterator();
+                    return new Iterator<Entry<String, String>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return keys.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (!keys.hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            String key = keys.next();
+                            return new SimpleImmutableEntry<>(key, languageMap.get(key));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return range.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package mz.cassamo.jls;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor generating typed key classes for types annotated with
+ * {@link TranslationKeys}.
+ *
+ * <p>
+ * For each annotated type, the language file is parsed with its imports and
+ * a class is generated with one {@link Key} constant per key, backed by a
+ * single {@link KeySet}. Each constant carries its index in the set and its
+ * number of placeholders. Tense keys such as {@code read~past} become
+ * {@code READ_PAST}; plural forms such as {@code unread_messages#one} become
+ * one plural key, {@code UNREAD_MESSAGES}.
+ * </p>
+ *
+ * <p>
+ * The processor also checks the string literals passed as keys to
+ * {@code LanguageSystem.get}, {@code getf}, {@code getWord} and
+ * {@code getPlural} in the compiled sources, and reports unknown keys as
+ * compilation errors. It is registered in
+ * {@code META-INF/services/javax.annotation.processing.Processor}.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class KeyProcessor extends AbstractProcessor {
+
+    /**
+     * Processor option with the directory against which language files are
+     * resolved.
+     */
+    public static final String BASE_DIR_OPTION = "jls.baseDir";
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$(\\d+)");
+
+    /**
+     * Keys of all language files read so far, for checking literals.
+     */
+    private final Set<String> knownKeys = new HashSet<>();
+    private boolean keysLoaded = false;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(TranslationKeys.class.getName());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Set.of(BASE_DIR_OPTION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(TranslationKeys.class)) {
+            if (element instanceof TypeElement) {
+                generate((TypeElement) element);
+            }
+        }
+        if (keysLoaded) {
+            checkLiterals(roundEnv);
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) {
+        TranslationKeys annotation = type.getAnnotation(TranslationKeys.class);
+        File file = resolve(annotation.value());
+        if (file == null) {
+            error(type, "Language file not found: " + annotation.value());
+            return;
+        }
+        LanguageHandler handler = new LanguageHandler();
+        try {
+            handler.initFromFile(file.getPath());
+        } catch (IOException e) {
+            error(type, "Cannot read language file " + file + ": " + e.getMessage());
+            return;
+        }
+
+        // Arity of each key (or plural key), over all languages, in key order
+        Map<String, Integer> arities = new TreeMap<>();
+        Set<String> plurals = new HashSet<>();
+        for (Map<String, String> translations : handler.getLanguages().values()) {
+            for (Map.Entry<String, String> entry : translations.entrySet()) {
+                String key = entry.getKey().toLowerCase();
+                int separator = key.indexOf(PluralRules.SEPARATOR);
+                if (separator > 0 && PluralRules.categoryOf(key.substring(separator + 1)) >= 0) {
+                    key = key.substring(0, separator);
+                    plurals.add(key);
+                }
+                arities.merge(key, arityOf(entry.getValue()), Math::max);
+            }
+        }
+        knownKeys.addAll(arities.keySet());
+        keysLoaded = true;
+
+        String packageName = packageOf(type);
+        String className = annotation.className().isEmpty() ? type.getSimpleName() + "Keys" : annotation.className();
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source(packageName, className, file.getName(), arities, plurals));
+        } catch (IOException e) {
+            error(type, "Cannot generate " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private static String source(String packageName, String className, String fileName,
+            Map<String, Integer> arities, Set<String> plurals) {
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("import mz.cassamo.jls.Key;\n");
+        sb.append("import mz.cassamo.jls.KeySet;\n\n");
+        sb.append("/**\n * Typed keys of {@code ").append(fileName.replace("*/", "*&#47;")).append("}.\n */\n");
+        sb.append("@javax.annotation.processing.Generated(\"").append(KeyProcessor.class.getName()).append("\")\n");
+        sb.append("public final class ").append(className).append(" {\n\n");
+        sb.append("    /**\n     * All keys, in the order of their indexes.\n     */\n");
+        sb.append("    public static final KeySet KEYS = KeySet.of(");
+        int index = 0;
+        for (String key : arities.keySet()) {
+            sb.append(index++ == 0 ? "\n            " : ",\n            ");
+            appendJavaString(sb, key);
+        }
+        sb.append(");\n");
+        Set<String> names = new HashSet<>();
+        index = 0;
+        for (Map.Entry<String, Integer> entry : arities.entrySet()) {
+            String name = constantName(entry.getKey());
+            if (!names.add(name)) {
+                name = name + "_" + index;
+                names.add(name);
+            }
+            sb.append("\n    /**\n     * {@code ").append(entry.getKey().replace("*/", "*&#47;")).append("}\n     */\n");
+            sb.append("    public static final Key ").append(name).append(" = KEYS.")
+                    .append(plurals.contains(entry.getKey()) ? "pluralKey(" : "key(")
+                    .append(index++).append(", ").append(entry.getValue()).append(");\n");
+        }
+        sb.append("\n    private ").append(className).append("() {\n    }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Reports string literals used as keys that are not defined.
+     */
+    private void checkLiterals(RoundEnvironment roundEnv) {
+        Trees trees;
+        try {
+            trees = Trees.instance(processingEnv);
+        } catch (IllegalArgumentException e) {
+            return; // Not running in javac.
+        }
+        for (Element root : roundEnv.getRootElements()) {
+            TreePath path = trees.getPath(root);
+            if (path == null) {
+                continue;
+            }
+            CompilationUnitTree unit = path.getCompilationUnit();
+            new TreePathScanner<Void, Void>() {
+                @Override
+                public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+                    String key = keyOf(node);
+                    if (key != null && !knownKeys.contains(key)) {
+                        trees.printMessage(Diagnostic.Kind.ERROR, "Unknown translation key: " + key,
+                                node.getArguments().get(0), unit);
+                    }
+                    return super.visitMethodInvocation(node, unused);
+                }
+            }.scan(path, null);
+        }
+    }
+
+    /**
+     * Returns the key of a {@code LanguageSystem.get/getf/getWord/getPlural}
+     * call with a literal key, or {@code null}.
+     */
+    private static String keyOf(MethodInvocationTree node) {
+        if (!(node.getMethodSelect() instanceof MemberSelectTree) || node.getArguments().isEmpty()) {
+            return null;
+        }
+        MemberSelectTree select = (MemberSelectTree) node.getMethodSelect();
+        ExpressionTree owner = select.getExpression();
+        String ownerName = owner instanceof IdentifierTree ? ((IdentifierTree) owner).getName().toString()
+                : owner instanceof MemberSelectTree ? ((MemberSelectTree) owner).getIdentifier().toString() : "";
+        String method = select.getIdentifier().toString();
+        if (!ownerName.equals("LanguageSystem")
+                || !(method.equals("get") || method.equals("getf") || method.equals("getWord") || method.equals("getPlural"))) {
+            return null;
+        }
+        String key = literalOf(node.getArguments().get(0));
+        if (key == null) {
+            return null;
+        }
+        key = key.toLowerCase();
+        if (method.equals("getWord") && node.getArguments().size() == 2) {
+            String tense = literalOf(node.getArguments().get(1));
+            return tense != null ? key + "~" + tense : null;
+        }
+        return key;
+    }
+
+    private static String literalOf(ExpressionTree tree) {
+        if (tree instanceof LiteralTree && ((LiteralTree) tree).getValue() instanceof String) {
+            return (String) ((LiteralTree) tree).getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a language file against the base directory option, the source
+     * path and the working directory.
+     */
+    private File resolve(String path) {
+        File file = new File(path);
+        if (file.isAbsolute()) {
+            return file.isFile() ? file : null;
+        }
+        String baseDir = processingEnv.getOptions().get(BASE_DIR_OPTION);
+        if (baseDir != null) {
+            file = new File(baseDir, path);
+            return file.isFile() ? file : null;
+        }
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.SOURCE_PATH, "", path);
+            URI uri = resource.toUri();
+            if ("file".equals(uri.getScheme()) && new File(uri).isFile()) {
+                return new File(uri);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No source path; try the working directory.
+        }
+        file = new File(path).getAbsoluteFile();
+        return file.isFile() ? file : null;
+    }
+
+    private static int arityOf(String value) {
+        int arity = 0;
+        Matcher matcher = PLACEHOLDER.matcher(value);
+        while (matcher.find()) {
+            try {
+                arity = Math.max(arity, Integer.parseInt(matcher.group(1)));
+            } catch (NumberFormatException e) {
+                // Too many digits to be a placeholder.
+            }
+        }
+        return arity;
+    }
+
+    /**
+     * Converts a key to a constant name, such as {@code READ_PAST} for
+     * {@code read~past}.
+     */
+    static String constantName(String key) {
+        StringBuilder sb = new StringBuilder(key.length() + 1);
+        for (int i = 0; i < key.length(); i++) {
+            char c = Character.toUpperCase(key.charAt(i));
+            sb.append(Character.isJavaIdentifierPart(c) && c != '$' ? c : '_');
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0)) || sb.toString().equals("_")) {
+            sb.insert(0, "KEY_");
+        }
+        return sb.toString().toUpperCase(Locale.ROOT);
+    }
+
+    private static void appendJavaString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    private String packageOf(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
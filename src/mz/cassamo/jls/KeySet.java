@@ -0,0 +1,309 @@
+package mz.cassamo.jls;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A precompiled set of translation keys that can be resolved in one pass.
+ *
+ * <p>
+ * Keys are normalized once when the set is created, so resolving a
+ * {@code KeySet} only performs one lookup per key against a single language
+ * table.
+ * </p>
+ *
+ * <p>
+ * Example usage:
+ * </p>
+ *
+ * <pre>{@code
+ * static final KeySet PAGE = KeySet.of("hello_world", "presentation", "multi_line_message");
+ *
+ * String[] values = LanguageSystem.resolve(PAGE);
+ * String title = values[PAGE.indexOf("hello_world")];
+ *
+ * // Or, for template engines:
+ * KeySet.View view = LanguageSystem.view(PAGE);
+ * view.get("hello_world");
+ * view.refresh(); // after a language change
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class KeySet {
+
+    private final String[] names;
+    private final String[] keys;
+    /**
+     * Positions by lower case key, as keys are resolved.
+     */
+    private final Map<String, Integer> indexes;
+    /**
+     * The values resolved for a catalog and language, used by {@link Key}.
+     */
+    private volatile Table table;
+
+    private static final class Table {
+
+        final Catalog catalog;
+        final String language;
+        final String[] values;
+
+        Table(Catalog catalog, String language, String[] values) {
+            this.catalog = catalog;
+            this.language = language;
+            this.values = values;
+        }
+    }
+
+    private KeySet(String[] names) {
+        this.names = names.clone();
+        this.keys = new String[names.length];
+        this.indexes = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = names[i].toLowerCase();
+            indexes.putIfAbsent(keys[i], i);
+        }
+    }
+
+    /**
+     * Creates a key set from an array of translation keys.
+     *
+     * @param keys the translation keys
+     * @return the precompiled key set
+     */
+    public static KeySet of(String... keys) {
+        for (String key : keys) {
+            if (key == null) {
+                throw new IllegalArgumentException("Translation keys cannot be null");
+            }
+        }
+        return new KeySet(keys);
+    }
+
+    /**
+     * Returns the number of keys in this set.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the key at the given position, as it was given to
+     * {@link #of(String...)}.
+     *
+     * @param index the position of the key
+     * @return the key
+     */
+    public String keyAt(int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the position of a key in this set. Keys are compared ignoring
+     * case, as in {@link LanguageSystem#get(String)}.
+     *
+     * @param key the key
+     * @return the position of the key, or -1 if the key is not in this set
+     */
+    public int indexOf(String key) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            index = indexes.get(key.toLowerCase());
+        }
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the keys of this set, in order.
+     *
+     * @return an unmodifiable list of keys
+     */
+    public List<String> keys() {
+        return Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Returns the normalized (lower case) keys used for lookups.
+     */
+    String[] lookupKeys() {
+        return keys;
+    }
+
+    /**
+     * Creates the typed key at a position of this set. Used by the classes
+     * generated by {@link KeyProcessor}.
+     *
+     * @param index the position of the key
+     * @param arity the number of placeholders of the key
+     * @return the key
+     */
+    public Key key(int index, int arity) {
+        return new Key(this, index, arity, false);
+    }
+
+    /**
+     * Creates the typed key of a plural key at a position of this set. Used
+     * by the classes generated by {@link KeyProcessor}.
+     *
+     * @param index the position of the key
+     * @param arity the number of placeholders of the plural forms
+     * @return the key
+     */
+    public Key pluralKey(int index, int arity) {
+        return new Key(this, index, arity, true);
+    }
+
+    /**
+     * Returns the value of a key for the active catalog and the current
+     * language. All values of the set are resolved in one pass the first
+     * time, and again after the catalog or the language changes.
+     */
+    String valueAt(int index) {
+        Catalog catalog = LanguageReader.getCatalog();
+        if (catalog == null) {
+            return "";
+        }
+        String language = LanguageReader.getCurrentLanguage();
+        Table current = table;
+        if (current == null || current.catalog != catalog || !Objects.equals(current.language, language)) {
+            String[] values = new String[keys.length];
+            catalog.getValues(language, keys, values);
+            current = new Table(catalog, language, values);
+            table = current;
+        }
+        return current.values[index];
+    }
+
+    /**
+     * A reusable, read-only view of a resolved {@link KeySet}, usable as a
+     * {@code Map} by template engines.
+     *
+     * <p>
+     * The view keeps a single value array that is overwritten by
+     * {@link #refresh()} and {@link #refresh(String)}, so the same view can be
+     * reused across renders and language changes without allocating.
+     * </p>
+     */
+    public static final class View extends AbstractMap<String, String> {
+
+        private final KeySet keySet;
+        private final String[] values;
+        private String language;
+
+        View(KeySet keySet, String language) {
+            this.keySet = keySet;
+            this.values = new String[keySet.size()];
+            refresh(language);
+        }
+
+        /**
+         * Resolves the values again for the current language.
+         *
+         * @return this view
+         */
+        public View refresh() {
+            return refresh(LanguageReader.getCurrentLanguage());
+        }
+
+        /**
+         * Resolves the values again for the given language.
+         *
+         * @param language the language to resolve
+         * @return this view
+         */
+        public View refresh(String language) {
+            this.language = language;
+            LanguageReader.getValues(keySet, language, values);
+            return this;
+        }
+
+        /**
+         * Returns the language the values were resolved for.
+         *
+         * @return the resolved language
+         */
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Returns the key set of this view.
+         *
+         * @return the key set
+         */
+        public KeySet getKeySet() {
+            return keySet;
+        }
+
+        /**
+         * Returns the value at the given position of the key set.
+         *
+         * @param index the position of the key
+         * @return the resolved value, or {@code null} if the key is not found
+         */
+        public String get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public String get(Object key) {
+            int index = key instanceof String ? keySet.indexOf((String) key) : -1;
+            return index >= 0 ? values[index] : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && keySet.indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (index >= values.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = index++;
+                            return new SimpleImmutableEntry<>(keySet.keyAt(i), values[i]);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.length;
+                }
+            };
+        }
+    }
+}
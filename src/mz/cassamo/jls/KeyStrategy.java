@@ -0,0 +1,99 @@
+package mz.cassamo.jls;
+
+import java.awt.Component;
+import javax.swing.JComponent;
+
+/**
+ * Derives the translation key of a component, for
+ * {@link LanguageSystem#bindTree(java.awt.Container, KeyStrategy)}.
+ *
+ * <pre>{@code
+ * JButton save = new JButton();
+ * save.setName("save");
+ * LanguageSystem.bindTree(frame.getContentPane(), KeyStrategy.byName("settings."));
+ * // save is translated with the key "settings.save"
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+@FunctionalInterface
+public interface KeyStrategy {
+
+    /**
+     * Client property read by {@link #byClientProperty()}.
+     */
+    String CLIENT_PROPERTY = "jls.key";
+
+    /**
+     * Returns the translation key of a component.
+     *
+     * @param component the component
+     * @return the key, or {@code null} to leave the component untranslated
+     */
+    String keyOf(Component component);
+
+    /**
+     * Returns a strategy using this strategy, and another one for the
+     * components this strategy returns no key for.
+     *
+     * @param other the fallback strategy
+     * @return the combined strategy
+     */
+    default KeyStrategy or(KeyStrategy other) {
+        return component -> {
+            String key = keyOf(component);
+            return key != null ? key : other.keyOf(component);
+        };
+    }
+
+    /**
+     * Uses the name of the component ({@link Component#setName(String)}) as
+     * its key.
+     *
+     * @return the strategy
+     */
+    static KeyStrategy byName() {
+        return byName("");
+    }
+
+    /**
+     * Uses the name of the component, after a prefix, as its key.
+     *
+     * @param prefix the prefix, such as {@code "settings."}
+     * @return the strategy
+     */
+    static KeyStrategy byName(String prefix) {
+        return component -> {
+            String name = component.getName();
+            return name != null && !name.isEmpty() ? prefix + name : null;
+        };
+    }
+
+    /**
+     * Uses the {@value #CLIENT_PROPERTY} client property of Swing components
+     * as their key: {@code button.putClientProperty("jls.key", "save")}.
+     *
+     * @return the strategy
+     */
+    static KeyStrategy byClientProperty() {
+        return byClientProperty(CLIENT_PROPERTY);
+    }
+
+    /**
+     * Uses a client property of Swing components as their key.
+     *
+     * @param property the client property key
+     * @return the strategy
+     */
+    static KeyStrategy byClientProperty(Object property) {
+        return component -> {
+            if (component instanceof JComponent) {
+                Object key = ((JComponent) component).getClientProperty(property);
+                return key != null ? key.toString() : null;
+            }
+            return null;
+        };
+    }
+}
@@ -1,5 +1,9 @@
 package mz.cassamo.jls;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -22,6 +26,11 @@ import java.util.regex.Pattern;
 class LanguageFormatter {
 
     private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$(\\d+)");
+    private static final int MAX_CACHED_TEMPLATES = 4096;
+    /**
+     * Compiled templates by text.
+     */
+    private static final Map<String, Template> templates = new ConcurrentHashMap<>();
 
      /**
      * Checks if the provided text contains any placeholders.
@@ -58,15 +67,102 @@ class LanguageFormatter {
      * @throws NumberFormatException if a placeholder cannot be parsed as an integer
      */
     public static String format(String text, String... values) {
-        Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
-        StringBuffer result = new StringBuffer();
+        return compile(text).format(values);
+    }
 
-        while (matcher.find()) {
-            int index = Integer.parseInt(matcher.group(1)) - 1;
-            String replacement = (index >= 0 && index < values.length) ? values[index] : matcher.group(0);
-            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+    /**
+     * Compiles a text into a template, so that later calls to
+     * {@link #format(String, String...)} with the same text skip parsing.
+     * Templates are cached; once the cache is full, it is emptied before the
+     * next text is cached, so texts of replaced catalogs and one-off
+     * {@code format} inputs do not keep the current texts out.
+     *
+     * @param text the text containing placeholders
+     * @return the compiled template
+     * @throws NumberFormatException if a placeholder cannot be parsed as an integer
+     */
+    static Template compile(String text) {
+        Template template = templates.get(text);
+        if (template == null) {
+            template = Template.parse(text);
+            if (templates.size() >= MAX_CACHED_TEMPLATES) {
+                templates.clear();
+            }
+            templates.putIfAbsent(text, template);
+        }
+        return template;
+    }
+
+    /**
+     * Returns the number of cached templates.
+     */
+    static int cachedTemplates() {
+        return templates.size();
+    }
+
+    /**
+     * A text split into literal parts and placeholder indexes.
+     */
+    static final class Template {
+
+        private static final Template EMPTY = new Template("", new String[]{""}, new int[0], new String[0]);
+
+        private final String text;
+        /**
+         * Literal parts; part {@code i} comes before placeholder {@code i}.
+         */
+        private final String[] literals;
+        /**
+         * Zero based indexes of the placeholders.
+         */
+        private final int[] indexes;
+        /**
+         * The placeholders as written, kept when no value is given.
+         */
+        private final String[] placeholders;
+
+        private Template(String text, String[] literals, int[] indexes, String[] placeholders) {
+            this.text = text;
+            this.literals = literals;
+            this.indexes = indexes;
+            this.placeholders = placeholders;
+        }
+
+        static Template parse(String text) {
+            if (text.isEmpty()) {
+                return EMPTY;
+            }
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher(text);
+            List<String> literals = new ArrayList<>();
+            List<String> placeholders = new ArrayList<>();
+            int last = 0;
+            while (matcher.find()) {
+                literals.add(text.substring(last, matcher.start()));
+                placeholders.add(matcher.group(0));
+                last = matcher.end();
+            }
+            literals.add(text.substring(last));
+            int[] indexes = new int[placeholders.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = Integer.parseInt(placeholders.get(i).substring(1)) - 1;
+            }
+            return new Template(text, literals.toArray(new String[0]), indexes, placeholders.toArray(new String[0]));
+        }
+
+        /**
+         * Replaces the placeholders with the given values.
+         */
+        String format(String... values) {
+            if (indexes.length == 0) {
+                return text;
+            }
+            StringBuilder result = new StringBuilder(text.length() + 16 * indexes.length);
+            for (int i = 0; i < indexes.length; i++) {
+                result.append(literals[i]);
+                int index = indexes[i];
+                result.append(index >= 0 && index < values.length ? values[index] : placeholders[i]);
+            }
+            return result.append(literals[indexes.length]).toString();
         }
-        matcher.appendTail(result);
-        return result.toString();
     }
 }
@@ -1,10 +1,23 @@
 package mz.cassamo.jls;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -59,51 +72,55 @@ class LanguageHandler extends DefaultHandler {
     private String currentTranslationKey;
     private boolean isValueElement = false;
     private String tenseKey = null;
-
+    private String pluralKey = null;
 
 
     /**
      * Stores translations for all languages as nested maps.
      */
     private final Map<String, Map<String, String>> translations = new HashMap<>();
+    /**
+     * Sources (files or resources) in which each language is defined, in
+     * parse order.
+     */
+    private final Map<String, Set<URL>> languageSources = new LinkedHashMap<>();
+    /**
+     * Keys defined more than once for the same language, including across
+     * imported files.
+     */
+    private final Map<String, Set<String>> duplicates = new HashMap<>();
     /**
      * StringBuilder for accumulating character data within a <value> element.
      */
     private StringBuilder currentValueBuilder;
 
-    private String currentFilePath;
+    /**
+     * The source being parsed, recorded as a source of its languages.
+     */
+    private URL currentSource;
+
+    /**
+     * The parts of the source being parsed, when it imports other files.
+     */
+    private List<ImportGraph.Part> parts;
+
+    /**
+     * The import graph of the last load into this handler.
+     */
+    private ImportGraph imports;
 
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
           if (qName.equalsIgnoreCase("import-language")) {
-
-            // Processa a tag <import-language file="..."/>
-            String importFilePath = attributes.getValue("file");
-            if (importFilePath != null) {
-                // Chama o método recursivamente para carregar e processar o arquivo de importação
-                try {
-                    initFromFile(importFilePath);
-                } catch (IOException e) {
-                     if(LanguageSystem.isDebugMode()){
-                        System.err.println("Error while importing file: " + importFilePath);
-                    }
-                }
-            }
+            importLanguage(attributes.getValue("file"));
         } else if (qName.equalsIgnoreCase("language")) {
-            currentLanguage = attributes.getValue("value");
-            translations.putIfAbsent(currentLanguage, new HashMap<>());
-            tenseKey = null;
-
+            startLanguage(attributes.getValue("value"));
         } else if (qName.equalsIgnoreCase("translated")) {
-            currentTranslationKey = attributes.getValue("value");
-            tenseKey = null;
+            startTranslated(attributes.getValue("value"));
         } else if (qName.equalsIgnoreCase("value")) {
             isValueElement = true;
-            if (attributes.getValue("tense") != null) {
-                tenseKey = attributes.getValue("tense");
-            } else {
-                tenseKey = null;
-            }
+            tenseKey = attributes.getValue("tense");
+            pluralKey = attributes.getValue("plural");
             currentValueBuilder = new StringBuilder();
         }
     }
@@ -113,32 +130,105 @@ class LanguageHandler extends DefaultHandler {
         if (qName.equalsIgnoreCase("value")) {
             isValueElement = false;
 
-            if (currentValueBuilder != null && currentLanguage != null && currentTranslationKey != null) {
-                String translationValue = currentValueBuilder.toString().trim();
-                // System.out.println(currentTranslationKey);
-                String tempCurrentTranslationKey = currentTranslationKey;
-                // System.out.println(tenseKey);
-                if (translations.get(currentLanguage).containsKey(tempCurrentTranslationKey)
-                        && !tempCurrentTranslationKey.contains("~") && tenseKey != null) {
-                    /**
-                     * We add ~ if the current translation has multiple values and these values
-                     * contain tense attribute.
-                     */
-
-                    if (tenseKey != null) {
-                        tempCurrentTranslationKey = tempCurrentTranslationKey + "~" + tenseKey;
-                        tenseKey = null;
-                    }
-                } else if (!translations.get(currentLanguage).containsKey(tempCurrentTranslationKey)
-                        && !tempCurrentTranslationKey.contains("~") && tenseKey != null) {
-                    tempCurrentTranslationKey = tempCurrentTranslationKey + "~" + tenseKey;
-                    tenseKey = null;
-                }
-
-                //System.out.println(tempCurrentTranslationKey);
+            if (currentValueBuilder != null) {
+                endValue(currentValueBuilder.toString(), tenseKey, pluralKey);
+            }
+            tenseKey = null;
+            pluralKey = null;
+        }
+    }
 
-                translations.get(currentLanguage).put(tempCurrentTranslationKey, translationValue);
+    /**
+     * Processes an {@code <import-language file="..."/>} element. The import
+     * is recorded in place, after the translations defined before it, and
+     * merged by the {@link ImportGraph} of the load.
+     *
+     * @param importFilePath the value of the {@code file} attribute
+     */
+    void importLanguage(String importFilePath) {
+        if (importFilePath != null) {
+            if (parts == null) {
+                parts = new ArrayList<>();
             }
+            parts.add(new ImportGraph.Part(takeValues(), null));
+            parts.add(new ImportGraph.Part(null, importFilePath));
+        }
+    }
+
+    /**
+     * Moves the translations parsed so far into a new handler.
+     */
+    private LanguageHandler takeValues() {
+        LanguageHandler values = new LanguageHandler();
+        values.translations.putAll(translations);
+        values.languageSources.putAll(languageSources);
+        values.duplicates.putAll(duplicates);
+        translations.clear();
+        languageSources.clear();
+        duplicates.clear();
+        return values;
+    }
+
+    /**
+     * Processes the start of a {@code <language value="...">} element.
+     *
+     * @param language the value of the {@code value} attribute
+     */
+    void startLanguage(String language) {
+        currentLanguage = language;
+        translations.putIfAbsent(currentLanguage, new HashMap<>());
+        if (currentSource != null) {
+            languageSources.computeIfAbsent(currentLanguage, k -> new LinkedHashSet<>()).add(currentSource);
+        }
+    }
+
+    /**
+     * Processes the start of a {@code <translated value="...">} element.
+     *
+     * @param translationKey the value of the {@code value} attribute
+     */
+    void startTranslated(String translationKey) {
+        currentTranslationKey = translationKey;
+    }
+
+    /**
+     * Processes the end of a {@code <value>} element of the current
+     * translation.
+     *
+     * @param text   the character data of the element
+     * @param tense  the value of the {@code tense} attribute, or {@code null}
+     * @param plural the value of the {@code plural} attribute, or {@code null}
+     */
+    void endValue(String text, String tense, String plural) {
+        if (currentLanguage == null || currentTranslationKey == null) {
+            return;
+        }
+        String translationValue = text.trim();
+        String tempCurrentTranslationKey = currentTranslationKey;
+        if (!tempCurrentTranslationKey.contains("~") && tense != null) {
+            /**
+             * We add ~ if the current translation has multiple values and these values
+             * contain tense attribute.
+             */
+            tempCurrentTranslationKey = tempCurrentTranslationKey + "~" + tense;
+        }
+        if (plural != null && PluralRules.categoryOf(plural) >= 0) {
+            tempCurrentTranslationKey = tempCurrentTranslationKey + PluralRules.SEPARATOR + plural.toLowerCase();
+        }
+
+        putValue(currentLanguage, tempCurrentTranslationKey, translationValue);
+    }
+
+    /**
+     * Stores a translation value.
+     *
+     * @param language       the language of the value
+     * @param translationKey the full translation key
+     * @param value          the translation value
+     */
+    void putValue(String language, String translationKey, String value) {
+        if (translations.computeIfAbsent(language, k -> new HashMap<>()).put(translationKey, value) != null) {
+            duplicates.computeIfAbsent(language, k -> new LinkedHashSet<>()).add(translationKey);
         }
     }
 
@@ -189,6 +279,26 @@ class LanguageHandler extends DefaultHandler {
         return translations;
     }
 
+    /**
+     * Returns the sources (files or resources) in which each language is
+     * defined, including imported files.
+     *
+     * @return the sources of each language, in parse order
+     */
+    public Map<String, Set<URL>> getLanguageSources() {
+        return languageSources;
+    }
+
+    /**
+     * Returns the keys defined more than once for the same language. The
+     * last definition wins.
+     *
+     * @return the duplicate keys of each language
+     */
+    public Map<String, Set<String>> getDuplicates() {
+        return duplicates;
+    }
+
     /**
      * Checks if a specific language exists in the loaded translations.
      *
@@ -200,6 +310,38 @@ class LanguageHandler extends DefaultHandler {
     }
 
 
+    /**
+     * Copies all translations of another handler into this one. Values of the
+     * other handler replace existing values with the same key.
+     *
+     * @param other the handler to merge
+     */
+    void merge(LanguageHandler other) {
+        merge(other.translations);
+        for (Map.Entry<String, Set<URL>> entry : other.languageSources.entrySet()) {
+            languageSources.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).addAll(entry.getValue());
+        }
+        for (Map.Entry<String, Set<String>> entry : other.duplicates.entrySet()) {
+            duplicates.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Copies translations grouped by language into this handler. Values
+     * replace existing values with the same key.
+     *
+     * @param newTranslations the translations to merge
+     */
+    void merge(Map<String, ? extends Map<String, String>> newTranslations) {
+        for (Map.Entry<String, ? extends Map<String, String>> languageEntry : newTranslations.entrySet()) {
+            String language = languageEntry.getKey();
+            translations.putIfAbsent(language, new HashMap<>());
+            for (Map.Entry<String, String> entry : languageEntry.getValue().entrySet()) {
+                putValue(language, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * Inicia o parsing de um arquivo XML, incluindo seus arquivos importados.
      *
@@ -207,21 +349,129 @@ class LanguageHandler extends DefaultHandler {
      * @throws IOException Se houver erro ao processar o arquivo
      */
     public void initFromFile(String xmlFilePath) throws IOException {
-        currentFilePath = xmlFilePath; // Salva o caminho do arquivo atual
-
         File file = new File(xmlFilePath);
         if (!file.exists()) {
-            throw new IOException("File not found: " + xmlFilePath);
+            throw new FileNotFoundException("File not found: " + xmlFilePath);
+        }
+        initFromUrl(file.getAbsoluteFile().toURI().toURL());
+    }
+
+    /**
+     * Loads an XML source (file, classpath resource or JAR entry), including
+     * its imported files. Imports are resolved relative to the file that
+     * imports them, and each file is merged once even if imported several
+     * times.
+     *
+     * @param url the source to load
+     * @throws IOException if the source cannot be read or parsed
+     */
+    void initFromUrl(URL url) throws IOException {
+        imports = new ImportGraph();
+        imports.include(this, url);
+    }
+
+    /**
+     * Returns the import graph followed by the last load into this handler.
+     *
+     * @return the import graph, or {@code null} if nothing was loaded
+     */
+    ImportGraph getImports() {
+        return imports;
+    }
+
+    /**
+     * Parses a single XML source without following its imports.
+     *
+     * @param url the source to parse
+     * @return the translations defined by the source, split at its imports
+     * @throws IOException if the source cannot be read or parsed
+     */
+    static List<ImportGraph.Part> parseParts(URL url) throws IOException {
+        LanguageHandler handler = new LanguageHandler();
+        handler.parse(url);
+        if (handler.parts == null) {
+            return Collections.singletonList(new ImportGraph.Part(handler, null));
         }
+        handler.parts.add(new ImportGraph.Part(handler.takeValues(), null));
+        return handler.parts;
+    }
 
-        try (FileInputStream inputStream = new FileInputStream(file)) {
-            // Usando SAXParser para processar o XML
-            javax.xml.parsers.SAXParserFactory factory = javax.xml.parsers.SAXParserFactory.newInstance();
-            javax.xml.parsers.SAXParser saxParser = factory.newSAXParser();
-            saxParser.parse(inputStream, this);
+    private void parse(URL url) throws IOException {
+        currentSource = url;
+        try (InputStream inputStream = new ByteArrayInputStream(readBytes(url))) {
+            if (LanguageSystem.getParserType() == LanguageSystem.ParserType.STAX) {
+                LanguageStreamReader.parse(inputStream, this);
+            } else {
+                ParserProvider.parse(inputStream, this);
+            }
+        } catch (IOException e) {
+            throw e;
         } catch (Exception e) {
-            throw new IOException("Error while parsing file: " + xmlFilePath, e);
+            throw new IOException("Error while parsing file: " + url, e);
+        }
+    }
+
+    /**
+     * Loads a source and its imports into a new handler. Files are parsed
+     * through the cache of the {@link ImportGraph}.
+     *
+     * @param url the source to load
+     * @return the handler holding the translations of the source
+     * @throws IOException if the source cannot be read or parsed
+     */
+    static LanguageHandler load(URL url) throws IOException {
+        LanguageHandler handler = new LanguageHandler();
+        handler.initFromUrl(url);
+        return handler;
+    }
+
+    /**
+     * Resolves the path of an {@code <import-language>} relative to the file
+     * that imports it. File imports that cannot be found next to the including
+     * file are resolved against the working directory, as in previous
+     * versions.
+     *
+     * @param from the importing source
+     * @param path the value of the {@code file} attribute
+     * @return the URL of the imported source
+     * @throws IOException if the imported file cannot be found
+     */
+    static URL resolveImport(URL from, String path) throws IOException {
+        if (from != null) {
+            try {
+                URL url = new URL(from, path.replace('\\', '/'));
+                if (!"file".equals(url.getProtocol()) || toFile(url).exists()) {
+                    return url;
+                }
+            } catch (MalformedURLException e) {
+                // Not an URL (e.g. a Windows absolute path), try it as a file.
+            }
+        }
+        File file = new File(path);
+        if (!file.exists()) {
+            throw new IOException("File not found: " + path);
+        }
+        return file.getAbsoluteFile().toURI().toURL();
+    }
+
+    /**
+     * Reads all bytes of a source in one go: through NIO for files and through
+     * a single bulk read for other URLs.
+     */
+    private static byte[] readBytes(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            return Files.readAllBytes(toFile(url).toPath());
+        }
+        try (InputStream inputStream = url.openStream()) {
+            return inputStream.readAllBytes();
         }
     }
-}
 
+    static File toFile(URL url) throws IOException {
+        try {
+            return Paths.get(url.toURI()).toFile();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return new File(url.getPath());
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An independent set of translations with its own catalog and current
+ * language, for applications that need more than the single catalog of the
+ * static {@link LanguageSystem} API, such as multi-tenant servers.
+ *
+ * <p>
+ * An instance is either a root, holding a catalog, or an overlay created
+ * with {@link #overlay()}. An overlay stores only the keys it overrides and
+ * falls through to the catalog of its base instance for every other key, so
+ * a thousand tenant overlays on a shared catalog cost memory in proportion
+ * to their overrides, not a thousand copies of the catalog: a lookup reads
+ * the overrides, then the base, without building a catalog of its own.
+ * Overrides are copy-on-write: lookups never lock, and a reload of the base
+ * is seen by all of its overlays.
+ * </p>
+ *
+ * <pre>{@code
+ * LanguageInstance shared = new LanguageInstance("english", Catalog.of(translations));
+ * LanguageInstance tenant = shared.overlay();
+ * tenant.override("english", "app_title", "ACME Portal");
+ * tenant.get("app_title");   // ACME Portal
+ * tenant.get("exit");        // from the shared catalog
+ * }</pre>
+ *
+ * <p>
+ * The static API of {@link LanguageSystem} is backed by the default
+ * instance, returned by {@link LanguageSystem#getInstance()}, which can also
+ * be used as the base of overlays.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public class LanguageInstance {
+
+    /**
+     * The effective catalog of an overlay, built from a catalog of the base
+     * and a version of the overrides.
+     */
+    private static final class View {
+
+        final Catalog base;
+        final Map<String, Map<String, String>> overrides;
+        final Catalog catalog;
+
+        View(Catalog base, Map<String, Map<String, String>> overrides, Catalog catalog) {
+            this.base = base;
+            this.overrides = overrides;
+            this.catalog = catalog;
+        }
+    }
+
+    private final LanguageInstance base;
+    private volatile Catalog catalog;
+    private volatile String language;
+    /**
+     * The overrides of an overlay by language. A {@code null} value hides the
+     * key of the base. Replaced, never modified, on each change.
+     */
+    private volatile Map<String, Map<String, String>> overrides = Collections.emptyMap();
+    private volatile View view;
+
+    /**
+     * Creates an instance without translations. Lookups return an empty
+     * string until a catalog is set.
+     */
+    public LanguageInstance() {
+        this(null, null, "");
+    }
+
+    /**
+     * Creates an instance with a catalog.
+     *
+     * @param language the current language
+     * @param catalog the translations
+     */
+    public LanguageInstance(String language, Catalog catalog) {
+        this(null, catalog, language);
+    }
+
+    private LanguageInstance(LanguageInstance base, Catalog catalog, String language) {
+        this.base = base;
+        this.catalog = catalog;
+        this.language = language;
+    }
+
+    /**
+     * Creates an overlay of this instance. The overlay starts with no
+     * overrides and follows the current language of this instance until
+     * {@link #setLanguage(String)} is called on it.
+     *
+     * @return the new overlay
+     */
+    public LanguageInstance overlay() {
+        return new LanguageInstance(this, null, null);
+    }
+
+    /**
+     * Returns the instance this overlay falls through to.
+     *
+     * @return the base instance, or {@code null} if this is not an overlay
+     */
+    public LanguageInstance getBase() {
+        return base;
+    }
+
+    /**
+     * Checks if this instance is an overlay.
+     *
+     * @return true if this instance was created with {@link #overlay()}
+     */
+    public boolean isOverlay() {
+        return base != null;
+    }
+
+    /**
+     * Replaces the translations of this instance.
+     *
+     * @param catalog the new translations
+     * @throws IllegalStateException if this is an overlay, which uses the
+     * translations of its base
+     */
+    public void setCatalog(Catalog catalog) {
+        if (base != null) {
+            throw new IllegalStateException("An overlay uses the catalog of its base instance");
+        }
+        this.catalog = catalog;
+    }
+
+    /**
+     * Loads the translations of this instance from an XML file and its
+     * imports.
+     *
+     * @param language the language to set
+     * @param xml_file_path the path to the XML file
+     * @throws IOException if the file cannot be read or parsed
+     * @throws IllegalStateException if this is an overlay
+     */
+    public void initializeFromFile(String language, String xml_file_path) throws IOException {
+        setCatalog(LanguageReader.toCatalog(LanguageReader.parseFile(xml_file_path)));
+        setLanguage(language);
+    }
+
+    /**
+     * Loads the translations of this instance from a {@link CatalogSource}.
+     *
+     * @param language the language to set
+     * @param source the source of the translations
+     * @throws IOException if the source cannot be read
+     * @throws IllegalStateException if this is an overlay
+     */
+    public void initialize(String language, CatalogSource source) throws IOException {
+        setCatalog(LanguageReader.load(source, false));
+        setLanguage(language);
+    }
+
+    /**
+     * Returns the translations of this instance. For an overlay, this is the
+     * catalog of the base with the overrides applied, built on the first call
+     * after a change and shared with the maps of the base; lookups through
+     * the overlay do not need it.
+     *
+     * @return the catalog, or {@code null} if no translations were set
+     */
+    public Catalog getCatalog() {
+        if (base == null) {
+            return catalog;
+        }
+        Catalog baseCatalog = base.getCatalog();
+        Map<String, Map<String, String>> current = overrides;
+        View cached = view;
+        if (cached != null && cached.base == baseCatalog && cached.overrides == current) {
+            return cached.catalog;
+        }
+        Catalog effective = baseCatalog;
+        if (!current.isEmpty()) {
+            effective = (baseCatalog != null ? baseCatalog : Catalog.empty()).apply(toDelta(current));
+        }
+        view = new View(baseCatalog, current, effective);
+        return effective;
+    }
+
+    /**
+     * Returns the catalog of the root instance an overlay falls through to,
+     * without applying the overrides.
+     */
+    Catalog getRootCatalog() {
+        return base != null ? base.getRootCatalog() : getCatalog();
+    }
+
+    /**
+     * Sets the current language of this instance.
+     *
+     * @param language the language
+     */
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    /**
+     * Returns the current language of this instance. An overlay without its
+     * own language returns the language of its base.
+     *
+     * @return the current language
+     */
+    public String getLanguage() {
+        String current = language;
+        return current == null && base != null ? base.getLanguage() : current;
+    }
+
+    /**
+     * Overrides a translation in this overlay.
+     *
+     * @param language the language of the translation
+     * @param key the translation key
+     * @param value the value used instead of the value of the base
+     * @throws IllegalStateException if this is not an overlay
+     */
+    public void override(String language, String key, String value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        setOverride(language, key.toLowerCase(), value, false);
+    }
+
+    /**
+     * Hides a translation of the base in this overlay, as if the key was not
+     * defined.
+     *
+     * @param language the language of the translation
+     * @param key the translation key
+     * @throws IllegalStateException if this is not an overlay
+     */
+    public void hide(String language, String key) {
+        setOverride(language, key.toLowerCase(), null, false);
+    }
+
+    /**
+     * Removes an override or a hidden key, so the value of the base is used
+     * again.
+     *
+     * @param language the language of the translation
+     * @param key the translation key
+     * @throws IllegalStateException if this is not an overlay
+     */
+    public void clearOverride(String language, String key) {
+        setOverride(language, key.toLowerCase(), null, true);
+    }
+
+    /**
+     * Removes all overrides of this overlay.
+     */
+    public synchronized void clearOverrides() {
+        overrides = Collections.emptyMap();
+    }
+
+    /**
+     * Copies the overrides of a language into a new map, replacing the
+     * overrides (copy-on-write).
+     */
+    private synchronized void setOverride(String language, String key, String value, boolean clear) {
+        if (base == null) {
+            throw new IllegalStateException("Only an overlay can override translations");
+        }
+        Map<String, Map<String, String>> next = new HashMap<>(overrides);
+        Map<String, String> languageOverrides = new HashMap<>(next.getOrDefault(language, Collections.emptyMap()));
+        if (clear) {
+            languageOverrides.remove(key);
+        } else {
+            languageOverrides.put(key, value);
+        }
+        if (languageOverrides.isEmpty()) {
+            next.remove(language);
+        } else {
+            next.put(language, Collections.unmodifiableMap(languageOverrides));
+        }
+        overrides = Collections.unmodifiableMap(next);
+    }
+
+    /**
+     * Returns the overrides of this overlay as a delta. Hidden keys are
+     * removals.
+     *
+     * @return a new delta with the overrides
+     */
+    public CatalogDelta getOverrides() {
+        return toDelta(overrides);
+    }
+
+    private static CatalogDelta toDelta(Map<String, Map<String, String>> overrides) {
+        CatalogDelta delta = new CatalogDelta();
+        for (Map.Entry<String, Map<String, String>> languageEntry : overrides.entrySet()) {
+            for (Map.Entry<String, String> entry : languageEntry.getValue().entrySet()) {
+                if (entry.getValue() != null) {
+                    delta.put(languageEntry.getKey(), entry.getKey(), entry.getValue());
+                } else {
+                    delta.remove(languageEntry.getKey(), entry.getKey());
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the number of overridden and hidden keys of this overlay.
+     *
+     * @return the number of overrides
+     */
+    public int getOverrideCount() {
+        int count = 0;
+        for (Map<String, String> languageOverrides : overrides.values()) {
+            count += languageOverrides.size();
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the translated value for a given key in the current language.
+     *
+     * @param key the translation key
+     * @return the translated string, or null if the key is not found
+     */
+    public String get(String key) {
+        return get(key, null);
+    }
+
+    /**
+     * Retrieves the translated value for a given key in the current language,
+     * with a default value.
+     *
+     * @param key the translation key
+     * @param default_value the value to return if the key is not found
+     * @return the translated string, or the default value if the key is not
+     * found
+     */
+    public String get(String key, String default_value) {
+        return lookup(getLanguage(), key.toLowerCase(), default_value);
+    }
+
+    /**
+     * Retrieves and formats the translated string for a given key.
+     *
+     * @param key the translation key
+     * @param values the values to replace in the placeholders
+     * @return the formatted translated string
+     */
+    public String getf(String key, String... values) {
+        return LanguageFormatter.format(get(key, "null"), values);
+    }
+
+    /**
+     * Retrieves the translated value for a given key and tense.
+     *
+     * @param key the translation key
+     * @param tense the tense to retrieve
+     * @return the translated string, or an empty string if not found
+     * @see LanguageSystem#getWord(String, String)
+     */
+    public String getWord(String key, String tense) {
+        return get(key + "~" + tense, "");
+    }
+
+    /**
+     * Retrieves and formats the plural form of a key for a count.
+     *
+     * @param key the translation key
+     * @param n the count used to select the plural form
+     * @param values the values to replace in the placeholders; if none are
+     * given, the count is used as {@code $1}
+     * @return the formatted plural form
+     * @see LanguageSystem#getPlural(String, long, String...)
+     */
+    public String getPlural(String key, long n, String... values) {
+        if (values.length == 0) {
+            values = new String[]{Long.toString(n)};
+        }
+        return LanguageFormatter.format(lookupPlural(getLanguage(), key.toLowerCase(), n), values);
+    }
+
+    /**
+     * Checks if a language exists in the translations of this instance.
+     *
+     * @param language the language to check
+     * @return true if the language exists
+     */
+    public boolean existsLanguage(String language) {
+        if (base == null) {
+            Catalog translations = getCatalog();
+            return translations != null && translations.existsLanguage(language);
+        }
+        Map<String, String> languageOverrides = overrides.get(language);
+        return base.existsLanguage(language)
+                || languageOverrides != null && languageOverrides.values().stream().anyMatch(Objects::nonNull);
+    }
+
+    /**
+     * Resolves a lowercase key in the overrides of each overlay, then in the
+     * catalog of the root instance.
+     */
+    private String lookup(String language, String key, String default_value) {
+        if (base != null) {
+            Map<String, String> languageOverrides = overrides.get(language);
+            if (languageOverrides != null && languageOverrides.containsKey(key)) {
+                String value = languageOverrides.get(key);
+                return value != null ? value : default_value;
+            }
+            return base.lookup(language, key, default_value);
+        }
+        Catalog translations = getCatalog();
+        return translations != null ? translations.get(language, key, default_value) : "";
+    }
+
+    /**
+     * Resolves the plural form of a lowercase key like
+     * {@link Catalog#getPlural(String, String, long, String)} on the catalog
+     * with the overrides applied.
+     */
+    private String lookupPlural(String language, String key, long n) {
+        if (base == null) {
+            Catalog translations = getCatalog();
+            return translations != null ? translations.getPlural(language, key, n, "null") : "";
+        }
+        if (!overrides.containsKey(language)) {
+            return base.lookupPlural(language, key, n);
+        }
+        int category = PluralRules.forLanguage(language).select(Math.abs(n));
+        String value = lookup(language, key + PluralRules.SEPARATOR + PluralRules.CATEGORY_NAMES[category], null);
+        if (value == null) {
+            value = lookup(language, key + PluralRules.SEPARATOR + PluralRules.CATEGORY_NAMES[PluralRules.OTHER], null);
+        }
+        return value != null ? value : lookup(language, key, "null");
+    }
+
+    @Override
+    public String toString() {
+        return base == null ? "LanguageInstance[language=" + getLanguage() + "]"
+                : "LanguageInstance[overlay, language=" + getLanguage() + ", overrides=" + getOverrideCount() + "]";
+    }
+
+    /**
+     * The instance behind the static API of {@link LanguageSystem}.
+     */
+    static final class Default extends LanguageInstance {
+
+        @Override
+        public void setCatalog(Catalog catalog) {
+            LanguageSystem.initialize(LanguageReader.getCurrentLanguage(), catalog);
+        }
+
+        @Override
+        public Catalog getCatalog() {
+            return LanguageReader.getCatalog();
+        }
+
+        @Override
+        public void setLanguage(String language) {
+            LanguageSystem.setCurrentLanguage(language);
+        }
+
+        @Override
+        public String getLanguage() {
+            return LanguageReader.getCurrentLanguage();
+        }
+
+        @Override
+        public String get(String key, String default_value) {
+            return LanguageReader.getValue(key, default_value);
+        }
+
+        @Override
+        public String toString() {
+            return "LanguageInstance[default, language=" + getLanguage() + "]";
+        }
+    }
+}
@@ -5,14 +5,15 @@
 package mz.cassamo.jls;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import org.xml.sax.SAXException;
+import java.util.Set;
 
 /**
  *
@@ -46,22 +47,41 @@ class LanguageReader {
             e.printStackTrace();
         }
      */
-    private static SAXParserFactory factory = SAXParserFactory.newInstance();
-    private static LanguageHandler handler = new LanguageHandler();
-    private static String language = "";
-    private static SAXParser saxParser = null;
-    private static Map<String, Map<String, String>> languages;
+    private static volatile String language = "";
+    /**
+     * The active translations, or {@code null} before the first successful
+     * initialization.
+     */
+    private static volatile Catalog catalog = null;
+    /**
+     * The source of the active translations when initialized from a
+     * {@link CatalogSource}, used by {@link #refresh()}.
+     */
+    private static CatalogSource source = null;
+    private static boolean sourceLazy = false;
+    private static long sourceVersion = -1;
+    /**
+     * Whether loaded translations are validated, and the last report.
+     */
+    private static volatile boolean validationEnabled = false;
+    private static volatile ValidationReport validationReport = null;
+    /**
+     * The usage profile recording lookups, or {@code null} if disabled.
+     */
+    private static volatile UsageProfile profile = null;
+    /**
+     * Whether loaded translations are stored outside the Java heap.
+     */
+    private static volatile boolean offHeapStorage = false;
+    /**
+     * Generation of the last started load, and statistics of the last
+     * finished one.
+     */
+    private static long loadGeneration = 0;
+    private static volatile LoadStats loadStats = null;
 
     public static void init(String _language) {
-        language = _language;
-        try {
-            saxParser = factory.newSAXParser();
-            saxParser.parse("languages.xml", handler);
-        } catch (IOException | ParserConfigurationException | SAXException e) {
-            if (LanguageSystem.isDebugMode()) {
-                e.printStackTrace();
-            }
-        }
+        initFromFile(_language, "languages.xml");
     }
 
     public static void initFromFile(String _language, String xml_file_path) {
@@ -70,10 +90,15 @@ class LanguageReader {
         if (!file.exists()) {
             return;
         }
+        // A missing file installs nothing, so it must not cancel a load in
+        // progress.
+        long generation = nextGeneration();
         try {
-            saxParser = factory.newSAXParser();
-            saxParser.parse(file.getAbsolutePath(), handler);
-        } catch (IOException | ParserConfigurationException | SAXException e) {
+            long start = System.nanoTime();
+            LanguageHandler handler = parseFile(xml_file_path);
+            Catalog loaded = toCatalog(handler);
+            recordStats(xml_file_path, 0, start, loaded, install(generation, null, loaded, handler), handler.getImports());
+        } catch (IOException e) {
             if (LanguageSystem.isDebugMode()) {
                 e.printStackTrace();
             }
@@ -82,30 +107,297 @@ class LanguageReader {
 
     public static void initFromRes(String _language, Class<?> _class, String resourcePath) {
         language = _language;
+        try {
+            URL resource = resourceOf(_class, resourcePath);
+            long generation = nextGeneration();
+            long start = System.nanoTime();
+            LanguageHandler handler = LanguageHandler.load(resource);
+            Catalog loaded = toCatalog(handler);
+            recordStats(resourcePath, 0, start, loaded, install(generation, null, loaded, handler), handler.getImports());
+        } catch (FileNotFoundException e) {
+            if (LanguageSystem.isDebugMode()) {
+                System.err.println(e.getMessage());
+            }
+        } catch (IOException e) {
+            if (LanguageSystem.isDebugMode()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static synchronized void initFromCatalog(String _language, Catalog _catalog) {
+        nextGeneration();
+        language = _language;
+        catalog = _catalog;
+        source = null;
+        validate(_catalog.getTranslations(), Collections.emptyMap());
+        installed(_catalog);
+    }
+
+    public static void initFromSource(String _language, CatalogSource _source, boolean lazy) throws IOException {
+        long generation = nextGeneration();
+        long start = System.nanoTime();
+        long version = _source.getVersion();
+        Catalog loaded = load(_source, lazy);
+        recordStats(_source.toString(), 0, start, loaded, installSource(generation, _language, loaded, _source, lazy, version), null);
+    }
+
+    /**
+     * Parses a language XML file and its imports.
+     *
+     * @throws FileNotFoundException if the file does not exist
+     */
+    static LanguageHandler parseFile(String xml_file_path) throws IOException {
+        LanguageHandler handler = new LanguageHandler();
+        handler.initFromFile(new File(xml_file_path).getAbsolutePath());
+        return handler;
+    }
+
+    /**
+     * Parses a language XML resource and its imports.
+     *
+     * @throws FileNotFoundException if the resource does not exist
+     */
+    static LanguageHandler parseResource(Class<?> _class, String resourcePath) throws IOException {
+        return LanguageHandler.load(resourceOf(_class, resourcePath));
+    }
+
+    /**
+     * Finds a language XML resource.
+     *
+     * @throws FileNotFoundException if the resource does not exist
+     */
+    private static URL resourceOf(Class<?> _class, String resourcePath) throws FileNotFoundException {
         if (!resourcePath.startsWith("/")) {
             resourcePath = "/".concat(resourcePath);
         }
-        try (InputStream inputStream = _class.getResourceAsStream(resourcePath)) {
-            if (inputStream == null) {
-                if (LanguageSystem.isDebugMode()) {
-                    System.err.println("Resource not found: " + resourcePath);
-                }
+        URL resource = _class.getResource(resourcePath);
+        if (resource == null) {
+            throw new FileNotFoundException("Resource not found: " + resourcePath);
+        }
+        return resource;
+    }
 
-                return;
-            }
+    /**
+     * Creates the catalog of a parsed source, off the Java heap if enabled.
+     */
+    static Catalog toCatalog(LanguageHandler handler) {
+        return offHeapStorage ? Catalog.offHeap(handler.getLanguages()) : Catalog.of(handler.getLanguages());
+    }
 
-            saxParser = factory.newSAXParser();
-            saxParser.parse(inputStream, handler);
-        } catch (IOException | ParserConfigurationException | SAXException e) {
-            if (LanguageSystem.isDebugMode()) {
-                e.printStackTrace();
-            }
+    /**
+     * Starts a new load. Loads started earlier are not installed when they
+     * finish later.
+     */
+    static synchronized long nextGeneration() {
+        return ++loadGeneration;
+    }
+
+    /**
+     * Installs a catalog while a load is in progress, unless translations
+     * are already active.
+     */
+    static synchronized void serveDefaults(String _language, Catalog defaults) {
+        if (catalog == null) {
+            language = _language;
+            catalog = defaults;
+        }
+    }
+
+    /**
+     * Replaces the active catalog with the translations of a parsed source.
+     * Keys missing from the source are not kept from earlier
+     * initializations.
+     *
+     * @param _language the language to set, or {@code null} to keep it
+     * @return false if a newer load was started, in which case nothing is
+     * installed
+     */
+    static synchronized boolean install(long generation, String _language, Catalog loaded, LanguageHandler handler) {
+        if (generation != loadGeneration) {
+            return false;
+        }
+        if (_language != null) {
+            language = _language;
+        }
+        catalog = loaded;
+        source = null;
+        validate(handler.getLanguages(), handler.getDuplicates());
+        installed(loaded);
+        return true;
+    }
+
+    /**
+     * Replaces the active catalog with the translations of a source, which
+     * is kept for {@link #refresh()}.
+     *
+     * @return false if a newer load was started, in which case nothing is
+     * installed
+     */
+    static synchronized boolean installSource(long generation, String _language, Catalog loaded,
+            CatalogSource _source, boolean lazy, long version) {
+        if (generation != loadGeneration) {
+            return false;
+        }
+        language = _language;
+        catalog = loaded;
+        source = _source;
+        sourceLazy = lazy;
+        sourceVersion = version;
+        if (!lazy) {
+            validate(loaded.getTranslations(), Collections.emptyMap());
         }
+        installed(loaded);
+        return true;
+    }
+
+    static LoadStats recordStats(String loadedFrom, long waitMillis, long start, Catalog loaded, boolean installed, ImportGraph imports) {
+        boolean lazy = loaded.getTranslations() instanceof Catalog.LazyLanguages;
+        LoadStats stats = new LoadStats(loadedFrom, waitMillis, (System.nanoTime() - start) / 1_000_000,
+                loaded.getLanguages().size(), lazy ? 0 : loaded.size(), installed, Thread.currentThread().getName(),
+                imports == null ? 0 : imports.getFileCount(), imports == null ? 0 : imports.getParsedCount(),
+                imports == null ? Collections.emptyList() : imports.getCycles());
+        loadStats = stats;
+        if (LanguageSystem.isDebugMode()) {
+            System.out.println(stats);
+        }
+        return stats;
+    }
+
+    public static LoadStats getLoadStats() {
+        return loadStats;
+    }
+
+    /**
+     * Reloads the translations from the source given to
+     * {@link #initFromSource}, unless its version did not change.
+     *
+     * @return true if the translations were reloaded
+     */
+    public static synchronized boolean refresh() throws IOException {
+        if (source == null) {
+            return false;
+        }
+        long version = source.getVersion();
+        if (version != -1 && version == sourceVersion) {
+            return false;
+        }
+        catalog = load(source, sourceLazy);
+        sourceVersion = version;
+        if (!sourceLazy) {
+            validate(catalog.getTranslations(), Collections.emptyMap());
+        }
+        installed(catalog);
+        return true;
+    }
+
+    /**
+     * Applies a delta to the active catalog. The source, if any, is kept, so
+     * the next {@link #refresh()} that finds a new version replaces the
+     * result.
+     *
+     * @return the new active catalog
+     */
+    public static synchronized Catalog applyDelta(CatalogDelta delta) {
+        Catalog current = catalog;
+        catalog = (current != null ? current : Catalog.empty()).apply(delta);
+        installed(catalog);
+        return catalog;
+    }
+
+    static Catalog load(CatalogSource from, boolean lazy) throws IOException {
+        if (lazy) {
+            return Catalog.lazy(from, offHeapStorage);
+        }
+        Catalog loaded = from.load();
+        return offHeapStorage ? loaded.toOffHeap() : loaded;
+    }
+
+    public static void setOffHeapStorage(boolean enabled) {
+        offHeapStorage = enabled;
+    }
+
+    public static boolean isOffHeapStorage() {
+        return offHeapStorage;
+    }
+
+    /**
+     * Called after a new catalog was installed.
+     */
+    private static void installed(Catalog installed) {
+        UsageProfile current = profile;
+        if (current != null) {
+            current.preload(installed);
+        }
+    }
+
+    /**
+     * Starts recording lookups into a profile, saved on shutdown. The saved
+     * entries are preloaded now if translations are installed, or else as
+     * soon as they are.
+     */
+    public static synchronized UsageProfile enableUsageProfile(Path file, int sampleRate, int maxEntries) throws IOException {
+        disableUsageProfile();
+        UsageProfile created = new UsageProfile(file, sampleRate, maxEntries);
+        created.load();
+        created.registerShutdownHook();
+        profile = created;
+        Catalog current = catalog;
+        if (current != null) {
+            created.preload(current);
+        }
+        return created;
+    }
+
+    public static synchronized void disableUsageProfile() {
+        if (profile != null) {
+            profile.unregisterShutdownHook();
+            profile = null;
+        }
+    }
+
+    public static UsageProfile getUsageProfile() {
+        return profile;
+    }
+
+    public static void setValidationEnabled(boolean enabled) {
+        validationEnabled = enabled;
+        if (!enabled) {
+            validationReport = null;
+        }
+    }
+
+    public static boolean isValidationEnabled() {
+        return validationEnabled;
+    }
+
+    public static ValidationReport getValidationReport() {
+        return validationReport;
+    }
+
+    /**
+     * Validates newly loaded translations if validation is enabled, printing
+     * a summary in debug mode.
+     */
+    private static void validate(Map<String, ? extends Map<String, String>> translations, Map<String, Set<String>> duplicates) {
+        if (!validationEnabled) {
+            return;
+        }
+        ValidationReport report = new CatalogValidator().validate(translations, duplicates);
+        validationReport = report;
+        if (LanguageSystem.isDebugMode() && !report.isClean()) {
+            System.err.println(report);
+        }
+    }
+
+    public static Catalog getCatalog() {
+        return catalog;
     }
 
     public static Map<String, Map<String, String>> getLanguages() {
-        if (saxParser != null) {
-            return handler.getLanguages();
+        Catalog current = catalog;
+        if (current != null) {
+            return current.getTranslations();
         } else {
             return new HashMap<>();
         }
@@ -122,21 +414,81 @@ class LanguageReader {
 
     public static String getValue(String key, String default_value) {
         key = key.toLowerCase();
-        if (saxParser != null) {
-            return handler.getLanguageValue(language, key, default_value);
-        } else {
+        Catalog current = catalog;
+        UsageProfile recording = profile;
+        if (recording == null) {
+            return current != null ? current.get(language, key, default_value) : "";
+        }
+        if (current == null) {
+            return "";
+        }
+        // Only keys that exist are recorded.
+        String value = current.get(language, key, null);
+        if (value == null) {
+            return default_value;
+        }
+        recording.record(language, key);
+        return value;
+    }
+
+    /**
+     * Retrieves the translation of the key made of a namespace prefix and a
+     * suffix, without concatenating them.
+     */
+    public static String getScopedValue(String prefix, String key, String default_value) {
+        key = key.toLowerCase();
+        Catalog current = catalog;
+        if (current == null) {
             return "";
         }
+        String fullKey = current.findKey(language, prefix, key);
+        if (fullKey == null) {
+            return default_value;
+        }
+        UsageProfile recording = profile;
+        if (recording != null) {
+            recording.record(language, fullKey);
+        }
+        return current.get(language, fullKey, default_value);
+    }
 
+    public static String[] getValues(KeySet keys, String language, String[] values) {
+        Catalog current = catalog;
+        if (current != null) {
+            current.getValues(language, keys.lookupKeys(), values);
+        } else {
+            Arrays.fill(values, "");
+        }
+        return values;
     }
 
     public static String getWord(String key, String tense) {
         key = key.toLowerCase();
-        if (saxParser != null) {
-            return handler.getLanguageValue(language, key+"~"+tense, "");
-        } else {
+        Catalog current = catalog;
+        if (current == null) {
             return "";
         }
+        String value = current.get(language, key+"~"+tense, null);
+        UsageProfile recording = profile;
+        if (recording != null && value != null) {
+            recording.record(language, key+"~"+tense);
+        }
+        return value != null ? value : "";
+
+    }
+
+    public static String getPlural(String key, long n, String default_value) {
+        key = key.toLowerCase();
+        Catalog current = catalog;
+        if (current == null) {
+            return "";
+        }
+        String value = current.getPlural(language, key, n, null);
+        UsageProfile recording = profile;
+        if (recording != null && value != null) {
+            recording.record(language, key);
+        }
+        return value != null ? value : default_value;
 
     }
 
@@ -0,0 +1,150 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming (StAX) reader for language XML files.
+ *
+ * <p>
+ * The language schema is small and fixed, so instead of going through the
+ * generic SAX callbacks this reader pulls events with an
+ * {@link XMLStreamReader}, matches element names with a single
+ * {@code switch}, and only collects character data inside {@code <value>}
+ * elements. Elements are passed to the same {@link LanguageHandler} methods
+ * used by the SAX parser, so both parsers produce identical translations,
+ * including tense and plural keys and imported files.
+ * </p>
+ *
+ * <p>
+ * Selected with
+ * {@code LanguageSystem.setParserType(LanguageSystem.ParserType.STAX)}.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class LanguageStreamReader {
+
+    private static final int OTHER = 0;
+    private static final int IMPORT_LANGUAGE = 1;
+    private static final int LANGUAGE = 2;
+    private static final int TRANSLATED = 3;
+    private static final int VALUE = 4;
+
+    private LanguageStreamReader() {
+    }
+
+    /**
+     * Parses a language XML stream into a handler.
+     *
+     * @param inputStream the XML content
+     * @param handler the handler receiving the translations
+     * @throws IOException if the content cannot be read or is not valid XML
+     */
+    static void parse(InputStream inputStream, LanguageHandler handler) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = ParserProvider.createStreamReader(inputStream);
+            StringBuilder valueBuilder = new StringBuilder();
+            String tense = null;
+            String plural = null;
+            int valueDepth = 0;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (valueDepth > 0) {
+                            valueDepth++;
+                            break;
+                        }
+                        switch (elementOf(reader.getLocalName())) {
+                            case IMPORT_LANGUAGE:
+                                handler.importLanguage(reader.getAttributeValue(null, "file"));
+                                break;
+                            case LANGUAGE:
+                                handler.startLanguage(reader.getAttributeValue(null, "value"));
+                                break;
+                            case TRANSLATED:
+                                handler.startTranslated(reader.getAttributeValue(null, "value"));
+                                break;
+                            case VALUE:
+                                valueDepth = 1;
+                                tense = reader.getAttributeValue(null, "tense");
+                                plural = reader.getAttributeValue(null, "plural");
+                                valueBuilder.setLength(0);
+                                break;
+                            default:
+                                break;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (valueDepth > 0) {
+                            valueBuilder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (valueDepth > 1) {
+                            valueDepth--;
+                        } else if (valueDepth == 1) {
+                            valueDepth = 0;
+                            handler.endValue(valueBuilder.toString(), tense, plural);
+                            tense = null;
+                            plural = null;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Error while parsing language stream", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // Nothing left to release.
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps an element name to its element constant. Names are matched case
+     * insensitively, like the SAX handler does, but the common lower case
+     * spelling is resolved without any conversion.
+     */
+    private static int elementOf(String name) {
+        switch (name) {
+            case "value":
+                return VALUE;
+            case "translated":
+                return TRANSLATED;
+            case "language":
+                return LANGUAGE;
+            case "import-language":
+                return IMPORT_LANGUAGE;
+            default:
+                break;
+        }
+        switch (name.toLowerCase()) {
+            case "value":
+                return VALUE;
+            case "translated":
+                return TRANSLATED;
+            case "language":
+                return LANGUAGE;
+            case "import-language":
+                return IMPORT_LANGUAGE;
+            default:
+                return OTHER;
+        }
+    }
+}
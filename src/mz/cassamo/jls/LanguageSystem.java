@@ -1,11 +1,17 @@
 package mz.cassamo.jls;
 
 import java.awt.Component;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.awt.Container;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
  * A system for managing and applying language translations across user
@@ -28,10 +34,13 @@ import java.util.Locale;
  */
 public class LanguageSystem {
 
-    private static final ArrayList<HashMap<String, Object>> appliedComponents = new ArrayList<>();
+    private static final ComponentBindings appliedComponents = new ComponentBindings();
     private static final ArrayList<HashMap<String, Object>> appliedWidgets = new ArrayList<>();
     private static boolean debug = false;
+    private static ParserType parserType = ParserType.SAX;
     private static LanguageSystemInterface li;
+    private static final LanguageInstance DEFAULT_INSTANCE = new LanguageInstance.Default();
+    private static final LocaleNegotiator DEFAULT_NEGOTIATOR = new LocaleNegotiator(DEFAULT_INSTANCE);
 
     /**
      * Interface for receiving notifications when the language is changed.
@@ -46,6 +55,23 @@ public class LanguageSystem {
         void onChange(String current_language);
     }
 
+    /**
+     * Parsers available to read language XML files.
+     */
+    public static enum ParserType {
+
+        /**
+         * The standard SAX parser (default).
+         */
+        SAX,
+        /**
+         * A streaming (StAX) reader specialized for the language schema. It
+         * produces the same translations as {@link #SAX}, with less overhead
+         * per element on large catalogs.
+         */
+        STAX
+    }
+
     /**
      * Registers a listener to receive language change notifications.
      *
@@ -78,6 +104,250 @@ public class LanguageSystem {
         LanguageReader.initFromRes(default_language, _class, xml_file_path);
     }
 
+    /**
+     * Initializes the language system from a catalog, for example one created
+     * with {@link Builder#build()}, without writing and parsing XML.
+     *
+     * @param default_language the default language to be used.
+     * @param catalog the catalog containing language translations.
+     */
+    public static void initialize(String default_language, Catalog catalog) {
+        LanguageReader.initFromCatalog(default_language, catalog);
+    }
+
+    /**
+     * Initializes the language system with the translations of a builder,
+     * without writing and parsing XML. The builder can still be changed
+     * afterwards; changes are only seen after initializing again.
+     *
+     * @param default_language the default language to be used.
+     * @param builder the builder containing language translations.
+     */
+    public static void initialize(String default_language, Builder builder) {
+        LanguageReader.initFromCatalog(default_language, builder.build());
+    }
+
+    /**
+     * Initializes the language system from a {@link CatalogSource}, such as a
+     * database.
+     *
+     * @param default_language the default language to be used.
+     * @param source the source of the translations.
+     * @throws IOException if the source cannot be read.
+     */
+    public static void initialize(String default_language, CatalogSource source) throws IOException {
+        LanguageReader.initFromSource(default_language, source, false);
+    }
+
+    /**
+     * Initializes the language system from a {@link CatalogSource}. When
+     * {@code lazy} is true, only the language names are read now and each
+     * language is fetched from the source the first time it is used.
+     *
+     * @param default_language the default language to be used.
+     * @param source the source of the translations.
+     * @param lazy true to fetch each language on first use.
+     * @throws IOException if the source cannot be read.
+     */
+    public static void initialize(String default_language, CatalogSource source, boolean lazy) throws IOException {
+        LanguageReader.initFromSource(default_language, source, lazy);
+    }
+
+    /**
+     * Starts initializing the language system from a file in the background,
+     * on the load executor (see {@link #setLoadExecutor(Executor)}). The
+     * current translations stay active until the new ones are loaded.
+     *
+     * @param default_language the default language to be used.
+     * @param xml_file_path the path to the XML file containing language
+     * translations.
+     * @return a future completed with the loaded catalog once it is active, or
+     * with the load error (for example a {@link java.io.FileNotFoundException}).
+     */
+    public static CompletableFuture<Catalog> initializeFromFileAsync(String default_language, String xml_file_path) {
+        return initializeFromFileAsync(default_language, xml_file_path, null);
+    }
+
+    /**
+     * Starts initializing the language system from a file in the background.
+     * If no translations are active yet, the given defaults are served until
+     * the file is loaded; with {@link Catalog#empty()}, lookups return their
+     * default values meanwhile. Once the file is installed, the translated
+     * components are updated on the event dispatch thread, and the future
+     * completes after them.
+     *
+     * @param default_language the default language to be used.
+     * @param xml_file_path the path to the XML file containing language
+     * translations.
+     * @param defaults the catalog served until the load completes, or null.
+     * @return a future completed with the loaded catalog once it is active, or
+     * with the load error.
+     */
+    public static CompletableFuture<Catalog> initializeFromFileAsync(String default_language, String xml_file_path, Catalog defaults) {
+        if (defaults != null) {
+            LanguageReader.serveDefaults(default_language, defaults);
+        }
+        return AsyncLoader.load(xml_file_path, generation -> {
+            LanguageHandler handler = LanguageReader.parseFile(xml_file_path);
+            Catalog loaded = LanguageReader.toCatalog(handler);
+            return new AsyncLoader.Result(loaded, LanguageReader.install(generation, default_language, loaded, handler),
+                    handler.getImports());
+        }, appliedComponents::applyAllLater);
+    }
+
+    /**
+     * Starts initializing the language system from a resource in the
+     * background.
+     *
+     * @param default_language the default language to be used.
+     * @param _class the class used to load the resource.
+     * @param xml_file_path the path to the XML resource containing language
+     * translations.
+     * @param defaults the catalog served until the load completes if no
+     * translations are active yet, or null.
+     * @return a future completed with the loaded catalog once it is active, or
+     * with the load error.
+     * @see #initializeFromFileAsync(String, String, Catalog)
+     */
+    public static CompletableFuture<Catalog> initializeFromResourcesAsync(String default_language, Class<?> _class, String xml_file_path, Catalog defaults) {
+        if (defaults != null) {
+            LanguageReader.serveDefaults(default_language, defaults);
+        }
+        return AsyncLoader.load(xml_file_path, generation -> {
+            LanguageHandler handler = LanguageReader.parseResource(_class, xml_file_path);
+            Catalog loaded = LanguageReader.toCatalog(handler);
+            return new AsyncLoader.Result(loaded, LanguageReader.install(generation, default_language, loaded, handler),
+                    handler.getImports());
+        }, appliedComponents::applyAllLater);
+    }
+
+    /**
+     * Starts initializing the language system from a {@link CatalogSource} in
+     * the background.
+     *
+     * @param default_language the default language to be used.
+     * @param source the source of the translations.
+     * @param defaults the catalog served until the load completes if no
+     * translations are active yet, or null.
+     * @return a future completed with the loaded catalog once it is active, or
+     * with the load error.
+     * @see #initializeFromFileAsync(String, String, Catalog)
+     */
+    public static CompletableFuture<Catalog> initializeAsync(String default_language, CatalogSource source, Catalog defaults) {
+        if (defaults != null) {
+            LanguageReader.serveDefaults(default_language, defaults);
+        }
+        return AsyncLoader.load(source.toString(), generation -> {
+            long version = source.getVersion();
+            Catalog loaded = LanguageReader.load(source, false);
+            return new AsyncLoader.Result(loaded, LanguageReader.installSource(generation, default_language, loaded, source, false, version));
+        }, appliedComponents::applyAllLater);
+    }
+
+    /**
+     * Sets the executor running asynchronous initializations. By default,
+     * each load runs on a new virtual thread when the JVM supports them, or
+     * on a pooled daemon thread otherwise.
+     *
+     * @param executor the executor, or null to use the default one.
+     */
+    public static void setLoadExecutor(Executor executor) {
+        AsyncLoader.setExecutor(executor);
+    }
+
+    /**
+     * Gets the timing and size of the last load, blocking or asynchronous.
+     *
+     * @return the statistics, or null if nothing was loaded yet.
+     */
+    public static LoadStats getLoadStats() {
+        return LanguageReader.getLoadStats();
+    }
+
+    /**
+     * Reloads the translations from the {@link CatalogSource} the system was
+     * initialized with. Nothing is reloaded if the version of the source did
+     * not change, so this method can be polled cheaply.
+     *
+     * @return true if the translations were reloaded, false otherwise.
+     * @throws IOException if the source cannot be read.
+     */
+    public static boolean refresh() throws IOException {
+        boolean reloaded = LanguageReader.refresh();
+        if (reloaded) {
+            autoInsertLanguage();
+        }
+        return reloaded;
+    }
+
+    /**
+     * Applies a set of changes to the active translations and updates the
+     * registered components. Only the changed languages are touched, so small
+     * fixes to large catalogs are cheap.
+     *
+     * @param delta the changes to apply.
+     * @return the new active catalog.
+     * @throws IllegalStateException if the delta is based on another version
+     * of the catalog.
+     */
+    public static Catalog applyDelta(CatalogDelta delta) {
+        Catalog catalog = LanguageReader.applyDelta(delta);
+        autoInsertLanguage();
+        return catalog;
+    }
+
+    /**
+     * Returns the instance behind the static API. Changes made through the
+     * instance are seen by the static methods and the other way around. It
+     * can be used as the shared base of tenant overlays:
+     *
+     * <pre>{@code
+     * LanguageInstance tenant = LanguageSystem.getInstance().overlay();
+     * tenant.override("english", "app_title", "ACME Portal");
+     * }</pre>
+     *
+     * @return the default instance.
+     */
+    public static LanguageInstance getInstance() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Returns the negotiator choosing languages of the default instance for
+     * {@code Accept-Language} headers. Aliases such as
+     * {@code getNegotiator().alias("pt-BR", "portuguese")} are kept across
+     * initializations.
+     *
+     * @return the default negotiator.
+     */
+    public static LocaleNegotiator getNegotiator() {
+        return DEFAULT_NEGOTIATOR;
+    }
+
+    /**
+     * Chooses the available language for an {@code Accept-Language} header
+     * or a BCP-47 tag, such as {@code "pt-BR,pt;q=0.9,en;q=0.8"}. Results are
+     * cached by header.
+     *
+     * @param accept_language the header value or tag.
+     * @return the language, or null if no tag matches.
+     * @see LocaleNegotiator
+     */
+    public static String negotiate(String accept_language) {
+        return DEFAULT_NEGOTIATOR.negotiate(accept_language);
+    }
+
+    /**
+     * Gets the active translations.
+     *
+     * @return the active catalog, or an empty catalog if the system was not
+     * initialized.
+     */
+    public static Catalog getCatalog() {
+        Catalog catalog = LanguageReader.getCatalog();
+        return catalog != null ? catalog : Catalog.empty();
+    }
+
     /**
      * Gets the current active language.
      *
@@ -107,11 +377,43 @@ public class LanguageSystem {
      * @return a list of translations.
      */
     public static ArrayList<String> getTranslationKeys(String language) {
-        ArrayList<String> trans = new ArrayList<>();
-        for (String string : LanguageReader.getLanguages().get(language).keySet()) {
-            trans.add(string);
-        }
-        return trans;
+        return new ArrayList<>(getKeys(language, ""));
+    }
+
+    /**
+     * Gets the translation keys of a language that start with a prefix, such
+     * as {@code settings.}, in sorted order. The keys are indexed once per
+     * catalog, and the result is a read-only view, not a copy.
+     *
+     * @param language the language to be used.
+     * @param prefix the prefix of the keys, or an empty string for all keys.
+     * @return the sorted keys.
+     */
+    public static List<String> getKeys(String language, String prefix) {
+        return getCatalog().getKeys(language, prefix.toLowerCase());
+    }
+
+    /**
+     * Gets the translations of the current language whose keys start with a
+     * prefix, as a read-only view sorted by key.
+     *
+     * @param prefix the prefix of the keys, such as {@code settings.}.
+     * @return the translations by key.
+     */
+    public static Map<String, String> getAll(String prefix) {
+        return getCatalog().getAll(LanguageReader.getCurrentLanguage(), prefix.toLowerCase());
+    }
+
+    /**
+     * Creates a handle on the translations under a namespace. Keys given to
+     * the scope are relative to the namespace, and are looked up without
+     * concatenating strings.
+     *
+     * @param namespace the namespace, such as {@code settings.}.
+     * @return the scope.
+     */
+    public static Scope scope(String namespace) {
+        return new Scope(namespace);
     }
 
     /**
@@ -155,11 +457,29 @@ public class LanguageSystem {
      * @param language_key the language key for translation.
      */
     public static void autoTranslateComponent(Component component, String language_key) {
-        HashMap<String, Object> temp = new HashMap<>();
-        temp.put("component", component);
-        temp.put("language_value", language_key);
-        appliedComponents.add(temp);
-        autoInsertLanguage();
+        appliedComponents.bind(component, language_key);
+    }
+
+    /**
+     * Automatically translates a single component with a formatted string.
+     * The arguments are read again on every language change, so the
+     * component keeps its placeholder values:
+     *
+     * <pre>{@code
+     * LanguageSystem.autoTranslateComponent(button, "presentation", () -> user.getName());
+     * }</pre>
+     *
+     * A component has a single binding: registering it again replaces the
+     * previous key and arguments.
+     *
+     * @param component the component to be translated.
+     * @param language_key the language key for translation.
+     * @param arguments the suppliers of the values replacing the
+     * placeholders, in order.
+     * @see #getf(String, String...)
+     */
+    public static void autoTranslateComponent(Component component, String language_key, Supplier<?>... arguments) {
+        appliedComponents.bind(component, language_key, arguments);
     }
 
     /**
@@ -186,15 +506,44 @@ public class LanguageSystem {
     public static void autoTranslateComponents(String language_key, Component... components) {
         if (components.length > 0) {
             for (Component component : components) {
-                HashMap<String, Object> temp = new HashMap<>();
-                temp.put("component", component);
-                temp.put("language_value", language_key);
-                appliedComponents.add(temp);
-                autoInsertLanguage();
+                appliedComponents.bind(component, language_key);
             }
         }
     }
 
+    /**
+     * Automatically translates every component of a container tree, deriving
+     * the keys from the components, such as their names:
+     *
+     * <pre>{@code
+     * saveButton.setName("save");
+     * LanguageSystem.bindTree(frame.getContentPane(), KeyStrategy.byName("settings."));
+     * }</pre>
+     *
+     * The tree is walked once and all texts are applied in one pass.
+     * Components added to the tree later are translated when they are added,
+     * and removed components are released. Components registered with
+     * {@link #autoTranslateComponent(Component, String)} keep their key.
+     *
+     * @param root the root of the tree, such as a content pane.
+     * @param strategy derives the key of each component; components without
+     * a key or without a {@code setText(String)} method are skipped.
+     */
+    public static void bindTree(Container root, KeyStrategy strategy) {
+        appliedComponents.bindTree(root, strategy);
+    }
+
+    /**
+     * Stops translating a tree bound with
+     * {@link #bindTree(Container, KeyStrategy)}. The texts are left as is.
+     *
+     * @param root the root of the tree.
+     * @return true if the tree was bound.
+     */
+    public static boolean unbindTree(Container root) {
+        return appliedComponents.unbindTree(root);
+    }
+
     /**
      * Checks if a component can be translated by checking if it has a 'setText'
      * method.
@@ -203,38 +552,15 @@ public class LanguageSystem {
      * @return true if the component can be translated, false otherwise.
      */
     public static boolean canTranslateComponent(Component component) {
-        return component != null && existsMethodInClass(component.getClass(), "setText", String.class);
+        return ComponentBindings.canSetText(component);
     }
 
     /**
      * Automatically inserts the translated text into the components that need
-     * it. This method checks each registered component and updates it with the
-     * translated text.
+     * it. Components whose text did not change are not touched.
      */
     private static void autoInsertLanguage() {
-        if (!appliedComponents.isEmpty()) {
-            for (HashMap<String, Object> map : appliedComponents) {
-                Object component = map.get("component");
-                String lang_val = (String) map.get("language_value");
-                //sSystem.err.println(component.getClass());
-                if (component != null && existsMethodInClass(component.getClass(), "setText", String.class)) {
-                    try {
-                        Method setTextMethod = component.getClass().getMethod("setText", String.class);
-                        setTextMethod.invoke(component, get(lang_val));
-                    } catch (IllegalAccessException | NoSuchMethodException | SecurityException | InvocationTargetException e) {
-                        if (isDebugMode()) {
-                            System.err.println("LanguageSystemDebugOutput\n");
-                            e.printStackTrace();
-                        }
-                    }
-                } else {
-                    if (isDebugMode()) {
-                        System.err.println("LanguageSystemDebugOutput\nError: Method 'setText(String)' not found in component " + component.toString() + ".");
-                    }
-
-                }
-            }
-        }
+        appliedComponents.applyAll();
     }
 
     /**
@@ -325,6 +651,73 @@ public static String getWord(String key, String tense) {
         return LanguageFormatter.format(LanguageReader.getValue(key, "null"), values);
     }
 
+    /**
+     * Resolves all keys of a {@link KeySet} for the current language in one
+     * pass.
+     *
+     * @param keys the precompiled keys.
+     * @return the translated strings, in the order of the key set; missing
+     * keys are {@code null}.
+     */
+    public static String[] resolve(KeySet keys) {
+        return resolve(keys, LanguageReader.getCurrentLanguage());
+    }
+
+    /**
+     * Resolves all keys of a {@link KeySet} for a given language in one pass.
+     *
+     * @param keys the precompiled keys.
+     * @param language the language to resolve.
+     * @return the translated strings, in the order of the key set; missing
+     * keys are {@code null}.
+     */
+    public static String[] resolve(KeySet keys, String language) {
+        return LanguageReader.getValues(keys, language, new String[keys.size()]);
+    }
+
+    /**
+     * Resolves all keys of a {@link KeySet} for the current language into a
+     * reusable view, suitable as a model for template engines.
+     *
+     * @param keys the precompiled keys.
+     * @return the resolved view; call {@link KeySet.View#refresh()} to resolve
+     * it again after a language change.
+     */
+    public static KeySet.View view(KeySet keys) {
+        return new KeySet.View(keys, LanguageReader.getCurrentLanguage());
+    }
+
+    /**
+     * Retrieves the plural form of a translation for a given count and formats
+     * it, replacing placeholders with values.
+     *
+     * The plural category ("zero", "one", "two", "few", "many" or "other") is
+     * selected with the plural rule of the current language. If the selected
+     * category is not defined, the "other" form is used; if the key has no
+     * plural forms at all, the plain translation is used.
+     *
+     * <pre>{@code
+     * <translated value="unread_messages">
+     *     <value plural="one">You have $1 unread message</value>
+     *     <value plural="other">You have $1 unread messages</value>
+     * </translated>
+     *
+     * LanguageSystem.getPlural("unread_messages", 3); // You have 3 unread messages
+     * }</pre>
+     *
+     * @param key the translation key.
+     * @param n the count used to select the plural form.
+     * @param values the values to replace in the placeholders. If no values are
+     * given, the count is used as {@code $1}.
+     * @return the formatted plural form.
+     */
+    public static String getPlural(String key, long n, String... values) {
+        if (values.length == 0) {
+            values = new String[]{Long.toString(n)};
+        }
+        return LanguageFormatter.format(LanguageReader.getPlural(key, n, "null"), values);
+    }
+
     /**
      * Formats a string with placeholders replaced by the provided values.
      *
@@ -351,31 +744,54 @@ public static String getWord(String key, String tense) {
     }
 
     /**
-     * Checks if a method exists in a class with the given name and parameter
-     * types.
+     * Sets the debug mode to enable or disable debug messages.
+     *
+     * @param _debug true to enable debug mode, false to disable it.
+     */
+    public static void setDebugMode(boolean _debug) {
+        debug = _debug;
+    }
+
+    /**
+     * Sets the parser used by the next initializations to read language XML
+     * files.
      *
-     * @param clazz the class to check.
-     * @param methodName the method name.
-     * @param paramTypes the parameter types of the method.
-     * @return true if the method exists, false otherwise.
+     * @param _parserType the parser type, {@link ParserType#SAX} by default.
      */
-    private static boolean existsMethodInClass(Class<?> clazz, String methodName, Class<?>... paramTypes) {
-        try {
-            Method method = clazz.getMethod(methodName, paramTypes);
-            return method != null;
-        } catch (NoSuchMethodException e) {
-            return false;
-        }
+    public static void setParserType(ParserType _parserType) {
+        parserType = _parserType != null ? _parserType : ParserType.SAX;
+    }
 
+    /**
+     * Gets the parser used to read language XML files.
+     *
+     * @return the parser type.
+     */
+    public static ParserType getParserType() {
+        return parserType;
     }
 
     /**
-     * Sets the debug mode to enable or disable debug messages.
+     * Selects whether the translations loaded by the next initializations are
+     * stored outside the Java heap, as UTF-8 in direct byte buffers. This
+     * keeps very large catalogs from inflating the heap and lengthening GC
+     * pauses, at the cost of decoding values on access. Catalogs given
+     * directly to {@link #initialize(String, Catalog)} are installed as they
+     * are; use {@link Catalog#toOffHeap()} for them.
      *
-     * @param _debug true to enable debug mode, false to disable it.
+     * @param enabled true to store translations off-heap.
      */
-    public static void setDebugMode(boolean _debug) {
-        debug = _debug;
+    public static void setOffHeapStorage(boolean enabled) {
+        LanguageReader.setOffHeapStorage(enabled);
+    }
+
+    /**
+     * Checks if loaded translations are stored outside the Java heap.
+     *
+     * @return true if off-heap storage is enabled, false otherwise.
+     */
+    public static boolean isOffHeapStorage() {
+        return LanguageReader.isOffHeapStorage();
     }
 
     /**
@@ -387,6 +803,85 @@ public static String getWord(String key, String tense) {
         return debug;
     }
 
+    /**
+     * Enables or disables the validation of translations when they are
+     * loaded. The result of the last validation is available with
+     * {@link #getValidationReport()}, and a summary is printed in debug mode.
+     * Languages of lazy catalogs are not validated.
+     *
+     * @param enabled true to validate loaded translations.
+     * @see CatalogValidator
+     */
+    public static void setValidationEnabled(boolean enabled) {
+        LanguageReader.setValidationEnabled(enabled);
+    }
+
+    /**
+     * Checks if loaded translations are validated.
+     *
+     * @return true if validation is enabled, false otherwise.
+     */
+    public static boolean isValidationEnabled() {
+        return LanguageReader.isValidationEnabled();
+    }
+
+    /**
+     * Gets the report of the last validation of loaded translations.
+     *
+     * @return the report, or null if validation is disabled or nothing was
+     * loaded since it was enabled.
+     */
+    public static ValidationReport getValidationReport() {
+        return LanguageReader.getValidationReport();
+    }
+
+    /**
+     * Starts recording which translations are used, and preloads the
+     * translations recorded in a previous run. One lookup in 16 is recorded,
+     * for at most 10000 (language, key) entries.
+     *
+     * @param profile_file_path the file the profile is read from and saved to
+     * when the JVM shuts down.
+     * @return the usage profile.
+     * @throws IOException if the existing profile cannot be read.
+     * @see UsageProfile
+     */
+    public static UsageProfile enableUsageProfile(String profile_file_path) throws IOException {
+        return enableUsageProfile(profile_file_path, 16, 10000);
+    }
+
+    /**
+     * Starts recording which translations are used, and preloads the
+     * translations recorded in a previous run.
+     *
+     * @param profile_file_path the file the profile is read from and saved to
+     * when the JVM shuts down.
+     * @param sample_rate one lookup in {@code sample_rate} is recorded.
+     * @param max_entries the maximum number of (language, key) entries kept.
+     * @return the usage profile.
+     * @throws IOException if the existing profile cannot be read.
+     */
+    public static UsageProfile enableUsageProfile(String profile_file_path, int sample_rate, int max_entries) throws IOException {
+        return LanguageReader.enableUsageProfile(Paths.get(profile_file_path), sample_rate, max_entries);
+    }
+
+    /**
+     * Stops recording which translations are used. The profile is no longer
+     * saved on shutdown.
+     */
+    public static void disableUsageProfile() {
+        LanguageReader.disableUsageProfile();
+    }
+
+    /**
+     * Gets the active usage profile.
+     *
+     * @return the usage profile, or null if it is disabled.
+     */
+    public static UsageProfile getUsageProfile() {
+        return LanguageReader.getUsageProfile();
+    }
+
     /**
      * Checks if the specified language exists in the system.
      *
@@ -424,6 +919,15 @@ public static String getWord(String key, String tense) {
         public Builder() {
         super();
         }
+
+        /**
+         * Creates a builder that can be filled from several threads at once.
+         *
+         * @param concurrent true to create a concurrent builder.
+         */
+        public Builder(boolean concurrent) {
+        super(concurrent);
+        }
         
     }
 
@@ -0,0 +1,144 @@
+package mz.cassamo.jls;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Timing and size of a translation load, available with
+ * {@link LanguageSystem#getLoadStats()} after each initialization.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class LoadStats {
+
+    private final String source;
+    private final long waitMillis;
+    private final long loadMillis;
+    private final int languages;
+    private final int entries;
+    private final boolean installed;
+    private final String thread;
+    private final int files;
+    private final int parsedFiles;
+    private final List<String> importCycles;
+
+    LoadStats(String source, long waitMillis, long loadMillis, int languages, int entries, boolean installed, String thread,
+            int files, int parsedFiles, List<String> importCycles) {
+        this.source = source;
+        this.waitMillis = waitMillis;
+        this.loadMillis = loadMillis;
+        this.languages = languages;
+        this.entries = entries;
+        this.installed = installed;
+        this.thread = thread;
+        this.files = files;
+        this.parsedFiles = parsedFiles;
+        this.importCycles = importCycles;
+    }
+
+    /**
+     * Returns a description of what was loaded, such as a file path.
+     *
+     * @return the source description
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the time the load waited for a thread of the executor.
+     *
+     * @return the wait time in milliseconds, 0 for blocking loads
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * Returns the time spent reading and parsing the translations.
+     *
+     * @return the load time in milliseconds
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * Returns the number of loaded languages.
+     *
+     * @return the number of languages
+     */
+    public int getLanguageCount() {
+        return languages;
+    }
+
+    /**
+     * Returns the number of loaded translations. Languages of lazy catalogs
+     * are not counted.
+     *
+     * @return the number of entries
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * Checks if the loaded translations were installed. A load is not
+     * installed when another initialization was started after it.
+     *
+     * @return true if the translations became active
+     */
+    public boolean isInstalled() {
+        return installed;
+    }
+
+    /**
+     * Returns the name of the thread that loaded the translations.
+     *
+     * @return the thread name
+     */
+    public String getThread() {
+        return thread;
+    }
+
+    /**
+     * Returns the number of distinct XML files read by the load, including
+     * imported files. Files imported several times are counted once.
+     *
+     * @return the number of files, 0 for other sources
+     */
+    public int getFileCount() {
+        return files;
+    }
+
+    /**
+     * Returns the number of XML files parsed by the load. Files unchanged
+     * since an earlier load are reused without being parsed again.
+     *
+     * @return the number of parsed files, 0 for other sources
+     */
+    public int getParsedFileCount() {
+        return parsedFiles;
+    }
+
+    /**
+     * Returns the import cycles found by the load, such as
+     * {@code /app/a.xml -> /app/b.xml -> /app/a.xml}. The import closing each
+     * cycle is skipped.
+     *
+     * @return the cycles, empty if there are none
+     */
+    public List<String> getImportCycles() {
+        return importCycles;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadStats[source=" + source + ", wait=" + waitMillis + "ms, load=" + loadMillis
+                + "ms, languages=" + languages + ", entries=" + entries + ", installed=" + installed
+                + ", thread=" + thread + ", files=" + files + ", parsed=" + parsedFiles
+                + (importCycles.isEmpty() ? "" : ", cycles=" + importCycles) + "]";
+    }
+}
@@ -0,0 +1,298 @@
+package mz.cassamo.jls;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chooses one of the available languages for an HTTP {@code Accept-Language}
+ * header or a BCP-47 tag.
+ *
+ * <p>
+ * Languages in the XML files are named, such as {@code english} or
+ * {@code portuguese}. A tag is matched, in order, by an alias registered
+ * with {@link #alias(String, String)}, by a language with the same name as
+ * the tag, and by the English name of its language subtag ({@code pt}
+ * becomes {@code portuguese}). Regional tags fall back to shorter tags:
+ * {@code pt-BR} is tried as {@code pt-BR}, then as {@code pt}. The tags of a
+ * header are tried by decreasing quality, in header order for equal
+ * qualities; tags with {@code q=0} are ignored and {@code *} accepts the
+ * current language of the instance. An overlay instance offers the
+ * languages of its root instance.
+ * </p>
+ *
+ * <p>
+ * Results are cached by raw header, so a header seen before costs one hash
+ * lookup. The cache is dropped when the catalog changes or an alias is
+ * added, and holds at most 1024 headers; when it is full, it is emptied
+ * before caching the next header, so headers seen once cannot turn caching
+ * off for the traffic that follows. A header whose best match is
+ * {@code *} is cached as such and resolved to the current language on each
+ * call, so changing the language keeps the cache.
+ * </p>
+ *
+ * <pre>{@code
+ * LocaleNegotiator negotiator = new LocaleNegotiator(LanguageSystem.getInstance());
+ * negotiator.alias("pt-BR", "portuguese");
+ * String language = negotiator.negotiate("pt-BR,pt;q=0.9,en;q=0.8", "english");
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class LocaleNegotiator {
+
+    private static final int MAX_CACHED_HEADERS = 1024;
+
+    /**
+     * Cached result of headers matching no language.
+     */
+    private static final String NO_MATCH = new String("");
+
+    /**
+     * Cached result of headers matched by {@code *}, resolved to the current
+     * language on each call.
+     */
+    private static final String ANY = new String("*");
+
+    /**
+     * The state resolved for a catalog and a set of aliases.
+     */
+    private static final class Snapshot {
+
+        final Catalog catalog;
+        final Map<String, String> aliases;
+        /**
+         * Available languages by lowercase name.
+         */
+        final Map<String, String> languages = new HashMap<>();
+        final Map<String, String> results = new ConcurrentHashMap<>();
+
+        Snapshot(Catalog catalog, Map<String, String> aliases) {
+            this.catalog = catalog;
+            this.aliases = aliases;
+            if (catalog != null) {
+                for (String name : catalog.getLanguages()) {
+                    languages.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+                }
+            }
+        }
+    }
+
+    /**
+     * A tag of a header with its quality.
+     */
+    private static final class Range {
+
+        final String tag;
+        final double quality;
+
+        Range(String tag, double quality) {
+            this.tag = tag;
+            this.quality = quality;
+        }
+    }
+
+    private final LanguageInstance instance;
+    private volatile Map<String, String> aliases = Collections.emptyMap();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Creates a negotiator for the languages of an instance.
+     *
+     * @param instance the instance, such as {@link LanguageSystem#getInstance()}
+     */
+    public LocaleNegotiator(LanguageInstance instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Maps a tag to a language, such as {@code pt-BR} to
+     * {@code portuguese}. Tags are compared ignoring case, and {@code _} is
+     * accepted for {@code -}.
+     *
+     * @param tag the BCP-47 tag, such as {@code pt-BR} or {@code pt}
+     * @param language the language name used in the translations
+     * @return this negotiator
+     */
+    public synchronized LocaleNegotiator alias(String tag, String language) {
+        Map<String, String> next = new HashMap<>(aliases);
+        next.put(normalize(tag), language);
+        aliases = Collections.unmodifiableMap(next);
+        return this;
+    }
+
+    /**
+     * Returns the registered aliases.
+     *
+     * @return an unmodifiable map of normalized tags to languages
+     */
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+
+    /**
+     * Chooses the available language for a header.
+     *
+     * @param accept_language the value of an {@code Accept-Language} header,
+     * or a single tag such as {@code pt-BR}
+     * @return the language, or {@code null} if no tag matches
+     */
+    public String negotiate(String accept_language) {
+        if (accept_language == null) {
+            return null;
+        }
+        Snapshot current = snapshot();
+        String result = current.results.get(accept_language);
+        if (result == null) {
+            result = resolve(current, accept_language, true);
+            if (current.results.size() >= MAX_CACHED_HEADERS) {
+                // Headers are chosen by clients: start over rather than
+                // keeping the first ones forever.
+                current.results.clear();
+            }
+            current.results.put(accept_language, result);
+        }
+        if (result == ANY) {
+            String language = instance.getLanguage();
+            if (language != null && current.catalog.existsLanguage(language)) {
+                return language;
+            }
+            // The tags after * are tried when the current language is missing.
+            result = resolve(current, accept_language, false);
+        }
+        return result == NO_MATCH ? null : result;
+    }
+
+    /**
+     * Chooses the available language for a header, with a default value.
+     *
+     * @param accept_language the value of an {@code Accept-Language} header
+     * @param default_language the language to return if no tag matches
+     * @return the language, or the default language
+     */
+    public String negotiate(String accept_language, String default_language) {
+        String language = negotiate(accept_language);
+        return language != null ? language : default_language;
+    }
+
+    /**
+     * Chooses the available language for a locale, such as
+     * {@link Locale#getDefault()}.
+     *
+     * @param locale the locale
+     * @return the language, or {@code null} if it does not match
+     */
+    public String negotiate(Locale locale) {
+        return locale != null ? negotiate(locale.toLanguageTag()) : null;
+    }
+
+    /**
+     * Returns the number of headers currently cached.
+     *
+     * @return the number of cached headers
+     */
+    public int getCacheSize() {
+        Snapshot current = snapshot;
+        return current != null ? current.results.size() : 0;
+    }
+
+    private Snapshot snapshot() {
+        Catalog catalog = instance.getRootCatalog();
+        Map<String, String> currentAliases = aliases;
+        Snapshot current = snapshot;
+        if (current == null || current.catalog != catalog || current.aliases != currentAliases) {
+            current = new Snapshot(catalog, currentAliases);
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Resolves a header, returning {@link #ANY} for {@code *} if
+     * {@code acceptAny} is true, or skipping it otherwise.
+     */
+    private String resolve(Snapshot current, String header, boolean acceptAny) {
+        if (current.catalog == null) {
+            return NO_MATCH;
+        }
+        for (Range range : parse(header)) {
+            if (range.tag.equals("*")) {
+                if (acceptAny) {
+                    return ANY;
+                }
+                continue;
+            }
+            String language = match(current, range.tag);
+            if (language != null) {
+                return language;
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * Matches a tag and its shorter forms.
+     */
+    private static String match(Snapshot current, String tag) {
+        while (!tag.isEmpty()) {
+            String alias = current.aliases.get(tag);
+            if (alias != null && current.languages.containsKey(alias.toLowerCase(Locale.ROOT))) {
+                return current.languages.get(alias.toLowerCase(Locale.ROOT));
+            }
+            String language = current.languages.get(tag);
+            if (language != null) {
+                return language;
+            }
+            int dash = tag.lastIndexOf('-');
+            if (dash < 0) {
+                String name = new Locale(tag).getDisplayLanguage(Locale.ENGLISH).toLowerCase(Locale.ROOT);
+                return name.equals(tag) ? null : current.languages.get(name);
+            }
+            tag = tag.substring(0, dash);
+        }
+        return null;
+    }
+
+    /**
+     * Parses the tags of a header, sorted by decreasing quality.
+     */
+    private static List<Range> parse(String header) {
+        List<Range> ranges = new ArrayList<>();
+        for (String part : header.split(",")) {
+            int semicolon = part.indexOf(';');
+            String tag = normalize(semicolon >= 0 ? part.substring(0, semicolon) : part);
+            if (tag.isEmpty()) {
+                continue;
+            }
+            double quality = 1;
+            if (semicolon >= 0) {
+                for (String parameter : part.substring(semicolon + 1).split(";")) {
+                    parameter = parameter.trim();
+                    if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2).trim());
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+            }
+            if (quality > 0) {
+                ranges.add(new Range(tag, quality));
+            }
+        }
+        // Stable sort keeps header order for equal qualities.
+        ranges.sort((a, b) -> Double.compare(b.quality, a.quality));
+        return ranges;
+    }
+
+    private static String normalize(String tag) {
+        return tag.trim().replace('_', '-').toLowerCase(Locale.ROOT);
+    }
+}
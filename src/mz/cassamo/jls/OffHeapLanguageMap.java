@@ -0,0 +1,282 @@
+package mz.cassamo.jls;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map of translations whose keys and values are stored as UTF-8
+ * outside the Java heap, in direct byte buffers.
+ *
+ * <p>
+ * The index is an open-addressed hash table made only of primitive arrays
+ * (hashes, addresses and lengths), so the garbage collector has no objects to
+ * trace for the translations, whatever the size of the catalog. Values are
+ * decoded to {@code String} on each access. An optional small on-heap cache
+ * keeps the decoded values of recently used keys.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class OffHeapLanguageMap extends AbstractMap<String, String> {
+
+    /**
+     * Largest buffer allocated; entries are packed into buffers of at most
+     * this size.
+     */
+    private static final int MAX_CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final ByteBuffer[] chunks;
+    /**
+     * Hash of the key of each slot, never 0 for used slots.
+     */
+    private final int[] hashes;
+    /**
+     * Chunk index (high 32 bits) and offset (low 32 bits) of each entry. The
+     * key bytes are followed by the value bytes.
+     */
+    private final long[] addresses;
+    private final int[] keyLengths;
+    private final int[] valueLengths;
+    private final int mask;
+    private final int size;
+    private final long bytes;
+
+    private final HotEntry[] hotCache;
+    private final int hotMask;
+
+    /**
+     * A decoded entry of the hot cache.
+     */
+    private static final class HotEntry {
+
+        final String key;
+        final String value;
+
+        HotEntry(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private OffHeapLanguageMap(Map<String, String> translations, int hotCacheSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) (translations.size() / LOAD_FACTOR)) - 1) << 1;
+        this.hashes = new int[capacity];
+        this.addresses = new long[capacity];
+        this.keyLengths = new int[capacity];
+        this.valueLengths = new int[capacity];
+        this.mask = capacity - 1;
+
+        long estimate = 0;
+        for (Map.Entry<String, String> entry : translations.entrySet()) {
+            estimate += entry.getKey().length() + (entry.getValue() != null ? entry.getValue().length() : 0);
+        }
+        List<ByteBuffer> buffers = new ArrayList<>();
+        ByteBuffer current = null;
+        long total = 0;
+        int count = 0;
+        for (Map.Entry<String, String> entry : translations.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            // A null value (accepted by the plain builder) is stored empty, as
+            // a concurrent builder stores it.
+            byte[] value = entry.getValue() != null ? entry.getValue().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            int length = key.length + value.length;
+            if (current == null || current.remaining() < length) {
+                int chunkSize = (int) Math.min(MAX_CHUNK_SIZE, Math.max(estimate - total + estimate / 8, 4096));
+                current = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+                buffers.add(current);
+            }
+            long address = ((long) (buffers.size() - 1) << 32) | current.position();
+            current.put(key).put(value);
+            total += length;
+
+            int hash = hash(entry.getKey());
+            int slot = hash & mask;
+            while (hashes[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            addresses[slot] = address;
+            keyLengths[slot] = key.length;
+            valueLengths[slot] = value.length;
+            count++;
+        }
+        this.chunks = buffers.toArray(new ByteBuffer[0]);
+        this.size = count;
+        this.bytes = total;
+
+        int hotCapacity = hotCacheSize > 0 ? Integer.highestOneBit(hotCacheSize - 1 | 1) << 1 : 0;
+        this.hotCache = hotCapacity > 0 ? new HotEntry[hotCapacity] : null;
+        this.hotMask = hotCapacity - 1;
+    }
+
+    /**
+     * Copies translations into an off-heap map.
+     *
+     * @param translations the translations of one language
+     * @param hotCacheSize the number of decoded values cached on the heap, or
+     *                     0 to decode every access
+     * @return the off-heap map
+     */
+    static OffHeapLanguageMap of(Map<String, String> translations, int hotCacheSize) {
+        return new OffHeapLanguageMap(translations, hotCacheSize);
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * Returns the slot of a key, or -1 if it is not present.
+     */
+    private int slotOf(String key, int hash) {
+        int slot = hash & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == hash && keyEquals(slot, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int slot, String key) {
+        ByteBuffer chunk = chunks[(int) (addresses[slot] >>> 32)];
+        int offset = (int) addresses[slot];
+        int length = keyLengths[slot];
+        if (length == key.length()) {
+            // ASCII keys are compared without encoding the lookup key.
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                char c = key.charAt(i);
+                if (c >= 0x80) {
+                    ascii = false;
+                    break;
+                }
+                if (chunk.get(offset + i) != (byte) c) {
+                    return false;
+                }
+            }
+            if (ascii) {
+                return true;
+            }
+        }
+        byte[] encoded = key.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(offset + i) != encoded[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int slot, boolean value) {
+        ByteBuffer chunk = chunks[(int) (addresses[slot] >>> 32)];
+        int offset = (int) addresses[slot];
+        int length = keyLengths[slot];
+        if (value) {
+            offset += length;
+            length = valueLengths[slot];
+        }
+        byte[] decoded = new byte[length];
+        for (int i = 0; i < length; i++) {
+            decoded[i] = chunk.get(offset + i);
+        }
+        return new String(decoded, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String name = (String) key;
+        int hash = hash(name);
+        if (hotCache != null) {
+            HotEntry hot = hotCache[hash & hotMask];
+            if (hot != null && hot.key.equals(name)) {
+                return hot.value;
+            }
+        }
+        int slot = slotOf(name, hash);
+        if (slot < 0) {
+            return null;
+        }
+        String value = decode(slot, true);
+        if (hotCache != null) {
+            hotCache[hash & hotMask] = new HotEntry(name, value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String && slotOf((String) key, hash((String) key)) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of off-heap bytes used by keys and values.
+     */
+    long offHeapBytes() {
+        return bytes;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<Entry<String, String>>() {
+                    private int slot = advance(0);
+
+                    private int advance(int from) {
+                        while (from < hashes.length && hashes[from] == 0) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return slot < hashes.length;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (slot >= hashes.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, String> entry = new SimpleImmutableEntry<>(decode(slot, false), decode(slot, true));
+                        slot = advance(slot + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,241 @@
+package mz.cassamo.jls;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map made of a shared base map and a small set of overrides.
+ *
+ * <p>
+ * Lookups check the overrides first and fall through to the base. A
+ * {@code null} override marks a key removed from the base. This lets a changed
+ * language table (or a tenant-specific table) share all unchanged entries
+ * with the table it was derived from, so creating it costs memory and time
+ * proportional to the overrides only.
+ * </p>
+ *
+ * <p>
+ * Overriding an overlay stacks a new level on it instead of copying its
+ * overrides. Levels are merged like a binary counter: a new level absorbs
+ * the levels below it that are not larger than itself, so each change is
+ * copied a logarithmic number of times and a chain stays at most
+ * {@value #MAX_DEPTH} levels deep.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int MAX_DEPTH = 16;
+
+    /**
+     * The map below this level: a plain map or another overlay.
+     */
+    private final Map<K, V> base;
+    private final Map<K, V> overrides;
+    private final int size;
+    private final int depth;
+    /**
+     * The number of overrides of this level and the levels below.
+     */
+    private final int overrideCount;
+
+    private OverlayMap(Map<K, V> base, Map<K, V> overrides) {
+        this.base = base;
+        this.overrides = overrides;
+        OverlayMap<K, V> below = base instanceof OverlayMap ? (OverlayMap<K, V>) base : null;
+        this.depth = below != null ? below.depth + 1 : 1;
+        this.overrideCount = overrides.size() + (below != null ? below.overrideCount : 0);
+        int computed = base.size();
+        for (Map.Entry<K, V> entry : overrides.entrySet()) {
+            boolean inBase = base.containsKey(entry.getKey());
+            if (entry.getValue() == null && inBase) {
+                computed--;
+            } else if (entry.getValue() != null && !inBase) {
+                computed++;
+            }
+        }
+        this.size = computed;
+    }
+
+    /**
+     * Creates an overlay over a map. If the map is itself an overlay, a new
+     * level is stacked on it; it absorbs the levels below that are not
+     * larger than itself, or that exceed the maximum depth.
+     *
+     * @param map the map to override
+     * @param overrides the new values; a {@code null} value removes the key
+     * @return the overlay
+     */
+    static <K, V> OverlayMap<K, V> over(Map<K, V> map, Map<? extends K, ? extends V> overrides) {
+        Map<K, V> level = new HashMap<K, V>(overrides);
+        Map<K, V> below = map;
+        while (below instanceof OverlayMap) {
+            OverlayMap<K, V> overlay = (OverlayMap<K, V>) below;
+            if (overlay.overrides.size() > level.size() && overlay.depth < MAX_DEPTH) {
+                break;
+            }
+            Map<K, V> merged = new HashMap<>(overlay.overrides);
+            merged.putAll(level);
+            level = merged;
+            below = overlay.base;
+        }
+        return new OverlayMap<>(below, level);
+    }
+
+    /**
+     * Returns the number of overrides of all levels. A key overridden in
+     * several levels is counted once per level.
+     *
+     * @return the number of overrides
+     */
+    int overrideCount() {
+        return overrideCount;
+    }
+
+    /**
+     * Returns the shared base map below all levels.
+     *
+     * @return the base map
+     */
+    Map<K, V> base() {
+        Map<K, V> map = base;
+        while (map instanceof OverlayMap) {
+            map = ((OverlayMap<K, V>) map).base;
+        }
+        return map;
+    }
+
+    /**
+     * Returns the keys that may differ between two maps, when one is derived
+     * from the other or both from a common map through overlays.
+     *
+     * @return the keys overridden since the common map, or {@code null} if
+     * the maps share no level
+     */
+    static <K, V> Set<K> changedKeys(Map<K, V> from, Map<K, V> to) {
+        Map<Map<K, V>, Boolean> ancestors = new IdentityHashMap<>();
+        for (Map<K, V> map = from; ; map = ((OverlayMap<K, V>) map).base) {
+            ancestors.put(map, Boolean.TRUE);
+            if (!(map instanceof OverlayMap)) {
+                break;
+            }
+        }
+        Set<K> keys = new HashSet<>();
+        Map<K, V> common = to;
+        while (!ancestors.containsKey(common)) {
+            if (!(common instanceof OverlayMap)) {
+                return null;
+            }
+            OverlayMap<K, V> overlay = (OverlayMap<K, V>) common;
+            keys.addAll(overlay.overrides.keySet());
+            common = overlay.base;
+        }
+        for (Map<K, V> map = from; map != common; map = ((OverlayMap<K, V>) map).base) {
+            keys.addAll(((OverlayMap<K, V>) map).overrides.keySet());
+        }
+        return keys;
+    }
+
+    /**
+     * Copies this overlay into a plain map that no longer references the base.
+     *
+     * @return a new map with all entries
+     */
+    Map<K, V> compact() {
+        Map<K, V> compacted;
+        if (base instanceof OverlayMap) {
+            compacted = ((OverlayMap<K, V>) base).compact();
+        } else {
+            compacted = new HashMap<>(base);
+        }
+        for (Map.Entry<K, V> entry : overrides.entrySet()) {
+            if (entry.getValue() == null) {
+                compacted.remove(entry.getKey());
+            } else {
+                compacted.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return compacted;
+    }
+
+    @Override
+    public V get(Object key) {
+        if (overrides.containsKey(key)) {
+            return overrides.get(key);
+        }
+        return base.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (overrides.containsKey(key)) {
+            return overrides.get(key) != null;
+        }
+        return base.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new Iterator<Entry<K, V>>() {
+                    private final Iterator<Entry<K, V>> overrideIterator = overrides.entrySet().iterator();
+                    private final Iterator<Entry<K, V>> baseIterator = base.entrySet().iterator();
+                    private Entry<K, V> next = advance();
+
+                    private Entry<K, V> advance() {
+                        while (overrideIterator.hasNext()) {
+                            Entry<K, V> entry = overrideIterator.next();
+                            if (entry.getValue() != null) {
+                                return new SimpleImmutableEntry<>(entry);
+                            }
+                        }
+                        while (baseIterator.hasNext()) {
+                            Entry<K, V> entry = baseIterator.next();
+                            if (!overrides.containsKey(entry.getKey())) {
+                                return new SimpleImmutableEntry<>(entry);
+                            }
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<K, V> current = next;
+                        next = advance();
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
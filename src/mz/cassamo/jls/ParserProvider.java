@@ -0,0 +1,154 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Shared, thread-safe source of SAX parsers and StAX readers for language
+ * files.
+ *
+ * <p>
+ * The {@link SAXParserFactory} is looked up and configured only once. Parsers
+ * are pooled per thread and {@link SAXParser#reset() reset} after each use, so
+ * loading many files (including nested {@code <import-language>} files, which
+ * need a second parser while the first one is still running) does not pay the
+ * factory and parser setup cost each time, and parallel loads never share a
+ * parser.
+ * </p>
+ *
+ * <p>
+ * Parsers are created with secure processing enabled, and with external DTDs
+ * and external entities disabled. The same applies to the StAX readers used by
+ * {@link LanguageStreamReader}.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class ParserProvider {
+
+    /**
+     * Maximum number of idle parsers kept per thread.
+     */
+    private static final int MAX_POOLED_PARSERS = 4;
+
+    private static final SAXParserFactory factory = createFactory();
+
+    private static final XMLInputFactory streamFactory = createStreamFactory();
+
+    private static final ThreadLocal<ArrayDeque<SAXParser>> pool = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private ParserProvider() {
+    }
+
+    private static SAXParserFactory createFactory() {
+        SAXParserFactory saxFactory = SAXParserFactory.newInstance();
+        saxFactory.setNamespaceAware(false);
+        saxFactory.setValidating(false);
+        saxFactory.setXIncludeAware(false);
+        setFeature(saxFactory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        setFeature(saxFactory, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        setFeature(saxFactory, "http://xml.org/sax/features/external-general-entities", false);
+        setFeature(saxFactory, "http://xml.org/sax/features/external-parameter-entities", false);
+        return saxFactory;
+    }
+
+    private static XMLInputFactory createStreamFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        inputFactory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return inputFactory;
+    }
+
+    private static void setFeature(SAXParserFactory saxFactory, String feature, boolean value) {
+        try {
+            saxFactory.setFeature(feature, value);
+        } catch (ParserConfigurationException | SAXException e) {
+            // Not supported by this parser implementation.
+            if (LanguageSystem.isDebugMode()) {
+                System.err.println("SAX feature not supported: " + feature);
+            }
+        }
+    }
+
+    /**
+     * Takes a parser from the pool of the current thread, creating one if the
+     * pool is empty. The parser must be given back with {@link #release}.
+     *
+     * @return a ready to use parser
+     * @throws ParserConfigurationException if a parser cannot be created
+     * @throws SAXException if a parser cannot be created
+     */
+    static SAXParser acquire() throws ParserConfigurationException, SAXException {
+        SAXParser parser = pool.get().pollFirst();
+        if (parser != null) {
+            return parser;
+        }
+        synchronized (factory) {
+            return factory.newSAXParser();
+        }
+    }
+
+    /**
+     * Resets a parser and returns it to the pool of the current thread.
+     *
+     * @param parser the parser taken with {@link #acquire()}
+     */
+    static void release(SAXParser parser) {
+        ArrayDeque<SAXParser> parsers = pool.get();
+        if (parsers.size() < MAX_POOLED_PARSERS) {
+            try {
+                parser.reset();
+                parsers.addFirst(parser);
+            } catch (UnsupportedOperationException e) {
+                // Parser cannot be reused; let it be collected.
+            }
+        }
+    }
+
+    /**
+     * Creates a streaming (StAX) reader with external entities and DTDs
+     * disabled.
+     *
+     * @param inputStream the XML content
+     * @return the stream reader
+     * @throws XMLStreamException if the reader cannot be created
+     */
+    static XMLStreamReader createStreamReader(InputStream inputStream) throws XMLStreamException {
+        synchronized (streamFactory) {
+            return streamFactory.createXMLStreamReader(inputStream);
+        }
+    }
+
+    /**
+     * Parses an input stream with a pooled parser.
+     *
+     * @param inputStream the XML content
+     * @param handler the handler receiving the SAX events
+     * @throws IOException if the stream cannot be read
+     * @throws SAXException if the content is not valid XML
+     * @throws ParserConfigurationException if a parser cannot be created
+     */
+    static void parse(InputStream inputStream, DefaultHandler handler)
+            throws IOException, SAXException, ParserConfigurationException {
+        SAXParser parser = acquire();
+        try {
+            parser.parse(inputStream, handler);
+        } finally {
+            release(parser);
+        }
+    }
+}
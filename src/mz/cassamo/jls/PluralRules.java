@@ -0,0 +1,221 @@
+package mz.cassamo.jls;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plural rules used to select the plural category of a count.
+ *
+ * <p>
+ * Each supported language is mapped to a precompiled {@link PluralRule}. The
+ * rules are plain integer arithmetic over the count (modulo, comparisons turned
+ * into 0/1 masks), so selecting a category never interprets a rule expression
+ * at runtime and does not branch on the category being tested.
+ * </p>
+ *
+ * <p>
+ * Categories follow the CLDR names and are used as the value of the
+ * {@code plural} attribute:
+ * </p>
+ *
+ * <pre>{@code
+ * <translated value="unread_messages">
+ *     <value plural="one">You have $1 unread message</value>
+ *     <value plural="other">You have $1 unread messages</value>
+ * </translated>
+ * }</pre>
+ *
+ * Languages are looked up by the names used in the XML files (e.g.
+ * "english", "portuguese") and by their ISO 639-1 codes (e.g. "en", "pt").
+ * Unknown languages use the English rule.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class PluralRules {
+
+    public static final int ZERO = 0;
+    public static final int ONE = 1;
+    public static final int TWO = 2;
+    public static final int FEW = 3;
+    public static final int MANY = 4;
+    public static final int OTHER = 5;
+
+    /**
+     * Category names indexed by category constant.
+     */
+    static final String[] CATEGORY_NAMES = {"zero", "one", "two", "few", "many", "other"};
+
+    /**
+     * Separator between a translation key and its plural category.
+     */
+    static final char SEPARATOR = '#';
+
+    /**
+     * A compiled plural rule.
+     */
+    interface PluralRule {
+
+        /**
+         * Selects the plural category of a count.
+         *
+         * @param n the count
+         * @return one of the category constants
+         */
+        int select(long n);
+    }
+
+    /**
+     * one: n = 1.
+     */
+    static final PluralRule ONE_OTHER = n -> OTHER - (OTHER - ONE) * eq(n, 1);
+
+    /**
+     * one: n = 0..1.
+     */
+    static final PluralRule ZERO_ONE_OTHER = n -> OTHER - (OTHER - ONE) * between(n, 0, 1);
+
+    /**
+     * one: n = 1, many: n != 0 and n % 1000000 = 0.
+     */
+    static final PluralRule ONE_MANY_OTHER = n -> OTHER
+            - (OTHER - ONE) * eq(n, 1)
+            - (OTHER - MANY) * million(n);
+
+    /**
+     * one: n = 0..1, many: n != 0 and n % 1000000 = 0.
+     */
+    static final PluralRule ZERO_ONE_MANY_OTHER = n -> OTHER
+            - (OTHER - ONE) * between(n, 0, 1)
+            - (OTHER - MANY) * million(n);
+
+    /**
+     * Languages without plural forms.
+     */
+    static final PluralRule NONE = n -> OTHER;
+
+    /**
+     * East Slavic: one: n % 10 = 1 and n % 100 != 11, few: n % 10 = 2..4 and
+     * n % 100 != 12..14, many: everything else.
+     */
+    static final PluralRule EAST_SLAVIC = n -> {
+        long m10 = Math.abs(n) % 10;
+        long m100 = Math.abs(n) % 100;
+        int one = eq(m10, 1) & (1 - eq(m100, 11));
+        int few = between(m10, 2, 4) & (1 - between(m100, 12, 14));
+        return MANY - (MANY - ONE) * one - (MANY - FEW) * few;
+    };
+
+    /**
+     * Polish: one: n = 1, few: n % 10 = 2..4 and n % 100 != 12..14, many:
+     * everything else.
+     */
+    static final PluralRule POLISH = n -> {
+        long m10 = Math.abs(n) % 10;
+        long m100 = Math.abs(n) % 100;
+        int one = eq(n, 1);
+        int few = between(m10, 2, 4) & (1 - between(m100, 12, 14));
+        return MANY - (MANY - ONE) * one - (MANY - FEW) * few;
+    };
+
+    /**
+     * Czech and Slovak: one: n = 1, few: n = 2..4.
+     */
+    static final PluralRule WEST_SLAVIC = n -> OTHER
+            - (OTHER - ONE) * eq(n, 1)
+            - (OTHER - FEW) * between(n, 2, 4);
+
+    /**
+     * Arabic: zero: 0, one: 1, two: 2, few: n % 100 = 3..10, many: n % 100 =
+     * 11..99.
+     */
+    static final PluralRule ARABIC = n -> {
+        long m100 = Math.abs(n) % 100;
+        return OTHER
+                - (OTHER - ZERO) * eq(n, 0)
+                - (OTHER - ONE) * eq(n, 1)
+                - (OTHER - TWO) * eq(n, 2)
+                - (OTHER - FEW) * between(m100, 3, 10)
+                - (OTHER - MANY) * between(m100, 11, 99);
+    };
+
+    private static final Map<String, PluralRule> RULES = new HashMap<>();
+
+    static {
+        register(ONE_OTHER, "english", "en", "german", "de", "dutch", "nl", "swedish", "sv",
+                "danish", "da", "norwegian", "no", "nb", "finnish", "fi", "greek", "el",
+                "hungarian", "hu", "turkish", "tr", "bulgarian", "bg", "estonian", "et",
+                "swahili", "sw");
+        register(ONE_MANY_OTHER, "spanish", "es", "italian", "it", "catalan", "ca");
+        register(ZERO_ONE_MANY_OTHER, "portuguese", "pt", "french", "fr");
+        register(ZERO_ONE_OTHER, "hindi", "hi", "bengali", "bn", "zulu", "zu");
+        register(NONE, "chinese", "zh", "japanese", "ja", "korean", "ko", "vietnamese", "vi",
+                "thai", "th", "indonesian", "id", "malay", "ms");
+        register(EAST_SLAVIC, "russian", "ru", "ukrainian", "uk", "belarusian", "be");
+        register(POLISH, "polish", "pl");
+        register(WEST_SLAVIC, "czech", "cs", "slovak", "sk");
+        register(ARABIC, "arabic", "ar");
+    }
+
+    private PluralRules() {
+    }
+
+    private static void register(PluralRule rule, String... languages) {
+        for (String language : languages) {
+            RULES.put(language, rule);
+        }
+    }
+
+    /**
+     * Returns the plural rule of a language.
+     *
+     * @param language the language name or ISO code
+     * @return the plural rule, or the English rule if the language is unknown
+     */
+    public static PluralRule forLanguage(String language) {
+        if (language == null) {
+            return ONE_OTHER;
+        }
+        PluralRule rule = RULES.get(language.toLowerCase());
+        return rule != null ? rule : ONE_OTHER;
+    }
+
+    /**
+     * Returns the category constant of a category name.
+     *
+     * @param name the category name (e.g. "one", "few")
+     * @return the category constant, or -1 if the name is not a category
+     */
+    public static int categoryOf(String name) {
+        for (int i = 0; i < CATEGORY_NAMES.length; i++) {
+            if (CATEGORY_NAMES[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns 1 if {@code n == value}, 0 otherwise, without branching.
+     */
+    static int eq(long n, long value) {
+        long d = n - value;
+        return 1 - (int) ((d | -d) >>> 63);
+    }
+
+    /**
+     * Returns 1 if {@code lo <= n <= hi}, 0 otherwise, without branching.
+     */
+    static int between(long n, long lo, long hi) {
+        return 1 - (int) (((n - lo) | (hi - n)) >>> 63);
+    }
+
+    /**
+     * Returns 1 if {@code n} is a non-zero multiple of one million, 0
+     * otherwise.
+     */
+    static int million(long n) {
+        return eq(n % 1_000_000, 0) & (1 - eq(n, 0));
+    }
+}
@@ -0,0 +1,113 @@
+package mz.cassamo.jls;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A handle on the translations under a namespace, such as {@code settings.},
+ * for the current language.
+ *
+ * <p>
+ * Keys passed to a scope are relative to its namespace. They are looked up in
+ * the sorted key index of the active catalog by comparing the namespace and
+ * the key in place, so no string is concatenated per call. A scope always
+ * reads the active catalog and the current language, so it can be kept and
+ * reused across language changes and reloads.
+ * </p>
+ *
+ * <pre>{@code
+ * Scope settings = LanguageSystem.scope("settings.");
+ * String title = settings.get("title");           // settings.title
+ * Map<String, String> all = settings.getAll();    // every settings.* entry
+ * Scope display = settings.scope("display.");     // settings.display.*
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class Scope {
+
+    private final String prefix;
+
+    Scope(String prefix) {
+        this.prefix = prefix.toLowerCase();
+    }
+
+    /**
+     * Returns the namespace of this scope.
+     *
+     * @return the prefix prepended to keys
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns a scope for a namespace nested in this one.
+     *
+     * @param namespace the nested namespace, such as {@code display.}
+     * @return the nested scope
+     */
+    public Scope scope(String namespace) {
+        return new Scope(prefix + namespace);
+    }
+
+    /**
+     * Retrieves the translation of a key of this scope.
+     *
+     * @param key the key, relative to the namespace
+     * @return the translated string, or null if the key is not found
+     */
+    public String get(String key) {
+        return LanguageReader.getScopedValue(prefix, key, null);
+    }
+
+    /**
+     * Retrieves the translation of a key of this scope, with a default
+     * value.
+     *
+     * @param key the key, relative to the namespace
+     * @param default_value the value to return if the key is not found
+     * @return the translated string, or the default value
+     */
+    public String get(String key, String default_value) {
+        return LanguageReader.getScopedValue(prefix, key, default_value);
+    }
+
+    /**
+     * Retrieves and formats the translation of a key of this scope.
+     *
+     * @param key the key, relative to the namespace
+     * @param values the values to replace in the placeholders
+     * @return the formatted translated string
+     */
+    public String getf(String key, String... values) {
+        return LanguageFormatter.format(LanguageReader.getScopedValue(prefix, key, "null"), values);
+    }
+
+    /**
+     * Returns the full keys under this namespace in the current language, as
+     * a sorted read-only view.
+     *
+     * @return the keys
+     */
+    public List<String> getKeys() {
+        return LanguageSystem.getCatalog().getKeys(LanguageReader.getCurrentLanguage(), prefix);
+    }
+
+    /**
+     * Returns the translations under this namespace in the current language,
+     * as a read-only view sorted by full key.
+     *
+     * @return the translations by full key
+     */
+    public Map<String, String> getAll() {
+        return LanguageSystem.getCatalog().getAll(LanguageReader.getCurrentLanguage(), prefix);
+    }
+
+    @Override
+    public String toString() {
+        return "Scope[" + prefix + "]";
+    }
+}
@@ -0,0 +1,336 @@
+package mz.cassamo.jls;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Inverted trigram index over the values of a {@link Builder}, for substring
+ * and prefix searches.
+ *
+ * <p>
+ * Each translation of a language gets an id, in the order the keys were
+ * added. For every distinct trigram (three consecutive characters) of its
+ * lowercased value, the id is stored in a sorted posting list. A query of
+ * three characters or more intersects the posting lists of its trigrams,
+ * starting with the shortest, and only the few remaining candidates are
+ * compared with the query. Shorter queries are answered by scanning the
+ * ids of the language; once the ids of removed keys make up half of them,
+ * the language is renumbered in the same order, so the scan does not grow
+ * with churn. The index is updated on every change of the builder: the
+ * current value of the changed key is read again under the lock of the
+ * index and compared with the value indexed last, so concurrent changes of
+ * the same key cannot leave stale trigrams behind. Values are not copied,
+ * the indexed ones are referenced.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+final class SearchIndex {
+
+    /**
+     * Number of removed ids below which a language is never renumbered.
+     */
+    private static final int COMPACT_THRESHOLD = 64;
+
+    /**
+     * A sorted list of translation ids.
+     */
+    private static final class Postings {
+
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /**
+     * The index of a language.
+     */
+    private static final class LanguageIndex {
+
+        final Map<String, Integer> ids = new HashMap<>();
+        String[] keys = new String[16];
+        /**
+         * The value indexed for each id.
+         */
+        String[] values = new String[16];
+        int next = 0;
+        /**
+         * The number of ids below {@code next} whose key was removed.
+         */
+        int removed = 0;
+        final Map<Long, Postings> trigrams = new HashMap<>();
+
+        int idOf(String key) {
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = next++;
+                if (id == keys.length) {
+                    keys = Arrays.copyOf(keys, keys.length * 2);
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                keys[id] = key;
+                ids.put(key, id);
+            }
+            return id;
+        }
+
+        void release(String key, int id) {
+            ids.remove(key);
+            keys[id] = null;
+            values[id] = null;
+            removed++;
+            if (removed > COMPACT_THRESHOLD && removed > next / 2) {
+                compact();
+            }
+        }
+
+        /**
+         * Renumbers the live ids in order. The mapping keeps the order of the
+         * ids, so the posting lists stay sorted.
+         */
+        void compact() {
+            int[] renumbered = new int[next];
+            int live = 0;
+            for (int id = 0; id < next; id++) {
+                String key = keys[id];
+                if (key != null) {
+                    renumbered[id] = live;
+                    keys[live] = key;
+                    values[live] = values[id];
+                    ids.put(key, live);
+                    live++;
+                }
+            }
+            Arrays.fill(keys, live, next, null);
+            Arrays.fill(values, live, next, null);
+            for (Postings postings : trigrams.values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    postings.ids[i] = renumbered[postings.ids[i]];
+                }
+            }
+            next = live;
+            removed = 0;
+        }
+    }
+
+    private static final long[] NO_TRIGRAMS = new long[0];
+
+    private final Map<String, Map<String, String>> translations;
+    private final Map<String, LanguageIndex> languages = new HashMap<>();
+
+    /**
+     * Creates an empty index over the translations of a builder. The builder
+     * publishes it before calling {@link #indexAll()}, so changes made while
+     * the index is built are not lost.
+     *
+     * @param translations the translations of the builder, read when
+     * updating and checking candidates
+     */
+    SearchIndex(Map<String, Map<String, String>> translations) {
+        this.translations = translations;
+    }
+
+    /**
+     * Indexes all current translations.
+     */
+    synchronized void indexAll() {
+        for (Map.Entry<String, Map<String, String>> languageEntry : translations.entrySet()) {
+            for (String key : languageEntry.getValue().keySet()) {
+                update(languageEntry.getKey(), key);
+            }
+        }
+    }
+
+    /**
+     * Updates the index after a translation changed, from its current value
+     * in the builder.
+     */
+    synchronized void update(String language, String key) {
+        Map<String, String> current = translations.get(language);
+        String newValue = current != null ? current.get(key) : null;
+        LanguageIndex index = languages.get(language);
+        if (index == null) {
+            if (newValue == null) {
+                return;
+            }
+            index = new LanguageIndex();
+            languages.put(language, index);
+        }
+        Integer existing = index.ids.get(key);
+        if (existing == null && newValue == null) {
+            return;
+        }
+        String oldValue = existing != null ? index.values[existing] : null;
+        if (existing != null && Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        int id = index.idOf(key);
+        long[] oldTrigrams = trigramsOf(oldValue);
+        long[] newTrigrams = trigramsOf(newValue);
+        for (long trigram : oldTrigrams) {
+            if (Arrays.binarySearch(newTrigrams, trigram) < 0) {
+                Postings postings = index.trigrams.get(trigram);
+                if (postings != null) {
+                    postings.remove(id);
+                    if (postings.size == 0) {
+                        index.trigrams.remove(trigram);
+                    }
+                }
+            }
+        }
+        for (long trigram : newTrigrams) {
+            if (Arrays.binarySearch(oldTrigrams, trigram) < 0) {
+                index.trigrams.computeIfAbsent(trigram, k -> new Postings()).add(id);
+            }
+        }
+        if (newValue == null) {
+            index.release(key, id);
+        } else {
+            index.values[id] = newValue;
+        }
+    }
+
+    synchronized void removeLanguage(String language) {
+        languages.remove(language);
+    }
+
+    /**
+     * Finds the translations whose value contains, or starts with, a text,
+     * ignoring case. Results are ordered by language, then by the order in
+     * which the keys were added.
+     *
+     * @param language the language to search, or {@code null} for all
+     * @param text the text to find
+     * @param prefix true to match only values starting with the text
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of results
+     */
+    synchronized List<SearchResult> search(String language, String text, boolean prefix, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        String query = text.toLowerCase(Locale.ROOT);
+        List<SearchResult> results = new ArrayList<>(Math.min(limit, 64));
+        Iterable<String> searched = language != null ? Collections.singleton(language) : new TreeSet<>(languages.keySet());
+        int skip = offset;
+        for (String name : searched) {
+            LanguageIndex index = languages.get(name);
+            Map<String, String> values = translations.get(name);
+            if (index == null || values == null) {
+                continue;
+            }
+            for (int id : candidates(index, query)) {
+                if (results.size() == limit) {
+                    return results;
+                }
+                String key = index.keys[id];
+                String value = key != null ? values.get(key) : null;
+                if (value == null) {
+                    continue;
+                }
+                String lower = value.toLowerCase(Locale.ROOT);
+                if (prefix ? lower.startsWith(query) : lower.contains(query)) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        results.add(new SearchResult(name, key, value));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the ids of the translations containing every trigram of the
+     * query, or all ids for queries shorter than a trigram.
+     */
+    private static int[] candidates(LanguageIndex index, String query) {
+        if (query.length() < 3) {
+            int[] all = new int[index.next];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        List<Postings> lists = new ArrayList<>();
+        for (long trigram : trigramsOf(query)) {
+            Postings postings = index.trigrams.get(trigram);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+        Postings shortest = lists.get(0);
+        int[] result = new int[shortest.size];
+        int count = 0;
+        candidates:
+        for (int i = 0; i < shortest.size; i++) {
+            int id = shortest.ids[i];
+            for (int j = 1; j < lists.size(); j++) {
+                if (!lists.get(j).contains(id)) {
+                    continue candidates;
+                }
+            }
+            result[count++] = id;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the distinct trigrams of the lowercased value, sorted.
+     */
+    private static long[] trigramsOf(String value) {
+        if (value == null || value.length() < 3) {
+            return NO_TRIGRAMS;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        long[] trigrams = new long[lower.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) lower.charAt(i) << 32) | ((long) lower.charAt(i + 1) << 16) | lower.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return distinct == trigrams.length ? trigrams : Arrays.copyOf(trigrams, distinct);
+    }
+}
@@ -0,0 +1,53 @@
+package mz.cassamo.jls;
+
+/**
+ * A translation found by {@link Builder#search(String, String, int, int)}.
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class SearchResult {
+
+    private final String language;
+    private final String key;
+    private final String value;
+
+    SearchResult(String language, String key, String value) {
+        this.language = language;
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * Returns the language of the translation.
+     *
+     * @return the language
+     */
+    public String getLanguage() {
+        return language;
+    }
+
+    /**
+     * Returns the key of the translation.
+     *
+     * @return the translation key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the value that matched the query.
+     *
+     * @return the translation value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + language + "] " + key + " = " + value;
+    }
+}
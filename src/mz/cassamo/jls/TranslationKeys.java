@@ -0,0 +1,55 @@
+package mz.cassamo.jls;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates a class of typed {@link Key} constants for the keys of a
+ * language file, at compile time.
+ *
+ * <p>
+ * The {@link KeyProcessor} reads the file, including its imports, and
+ * generates a class named after the annotated type with a {@code Keys}
+ * suffix, in the same package. The compilation also fails when a string
+ * literal passed to {@code LanguageSystem.get}, {@code getf},
+ * {@code getWord} or {@code getPlural} is not a key of the file.
+ * </p>
+ *
+ * <pre>{@code
+ * @TranslationKeys("languages.xml")
+ * public class Messages {
+ * }
+ * // generates MessagesKeys with HELLO_WORLD, PRESENTATION, ...
+ * }</pre>
+ *
+ * <p>
+ * Relative paths are resolved against the {@code jls.baseDir} processor
+ * option ({@code -Ajls.baseDir=...}) if given, then against the source path,
+ * then against the working directory of the compiler.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface TranslationKeys {
+
+    /**
+     * The language file.
+     *
+     * @return the path of the XML file
+     */
+    String value() default "languages.xml";
+
+    /**
+     * The simple name of the generated class.
+     *
+     * @return the class name, or an empty string for the name of the
+     * annotated type followed by {@code Keys}
+     */
+    String className() default "";
+}
@@ -0,0 +1,279 @@
+package mz.cassamo.jls;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A compact record of the translations an application actually uses, used to
+ * warm up the {@link LanguageSystem} after a restart.
+ *
+ * <p>
+ * While enabled, a sample of the lookups made through {@link LanguageSystem}
+ * that find a translation is counted by (language, key); missing keys are
+ * not recorded. Memory is bounded: once the profile holds
+ * its maximum number of entries, only the counts of known entries grow. The
+ * profile is saved to a file when the JVM shuts down, as lines of
+ * {@code count<TAB>language<TAB>key}, most used first.
+ * </p>
+ *
+ * <p>
+ * On the next start, the saved entries are preloaded on a background thread
+ * as soon as translations are installed: languages of lazy catalogs are
+ * fetched, plural tables are built and templates with placeholders are
+ * compiled, with every plural form of a profiled plural key, so the first
+ * requests do not pay for it. Counts loaded from the file are halved, so
+ * entries that are no longer used fade out.
+ * </p>
+ *
+ * <pre>{@code
+ * LanguageSystem.enableUsageProfile("jls-profile.tsv");
+ * LanguageSystem.initializeFromFile("english", "languages.xml");
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class UsageProfile {
+
+    private static final char SEPARATOR = '\t';
+
+    private final Path file;
+    private final int sampleRate;
+    private final int maxEntries;
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private volatile boolean preloadPending = true;
+    private Thread shutdownHook = null;
+
+    /**
+     * Creates a profile.
+     *
+     * @param file the file the profile is read from and saved to
+     * @param sampleRate one lookup in {@code sampleRate} is recorded
+     * @param maxEntries the maximum number of (language, key) entries
+     */
+    UsageProfile(Path file, int sampleRate, int maxEntries) {
+        if (sampleRate <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Sample rate and maximum entries must be positive");
+        }
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Records a lookup, if it is sampled.
+     */
+    void record(String language, String key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        String entry = language + SEPARATOR + key;
+        AtomicLong count = counts.get(entry);
+        if (count == null) {
+            if (counts.size() >= maxEntries) {
+                return;
+            }
+            count = counts.computeIfAbsent(entry, k -> new AtomicLong());
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Reads the saved profile, if the file exists. Counts are halved, and
+     * entries beyond the maximum are dropped.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null && counts.size() < maxEntries) {
+                int first = line.indexOf(SEPARATOR);
+                if (first <= 0 || line.indexOf(SEPARATOR, first + 1) < 0) {
+                    continue;
+                }
+                long count;
+                try {
+                    count = Long.parseLong(line.substring(0, first)) / 2;
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (count > 0) {
+                    counts.computeIfAbsent(line.substring(first + 1), k -> new AtomicLong()).addAndGet(count);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the profile to its file, most used entries first. The file is
+     * replaced atomically where the file system supports it.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        List<Map.Entry<String, Long>> entries = snapshot();
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : entries) {
+                writer.write(Long.toString(entry.getValue()));
+                writer.write(SEPARATOR);
+                writer.write(entry.getKey());
+                writer.write('\n');
+            }
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private List<Map.Entry<String, Long>> snapshot() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.size());
+        for (Map.Entry<String, AtomicLong> entry : counts.entrySet()) {
+            long count = entry.getValue().get();
+            if (count > 0) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), count));
+            }
+        }
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return entries;
+    }
+
+    /**
+     * Returns the number of recorded (language, key) entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return counts.size();
+    }
+
+    /**
+     * Returns the recorded count of a translation.
+     *
+     * @param language the language
+     * @param key the translation key, in lower case
+     * @return the sampled count
+     */
+    public long getCount(String language, String key) {
+        AtomicLong count = counts.get(language + SEPARATOR + key);
+        return count != null ? count.get() : 0;
+    }
+
+    /**
+     * Returns the file of this profile.
+     *
+     * @return the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Saves the profile when the JVM shuts down.
+     */
+    void registerShutdownHook() {
+        shutdownHook = new Thread(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                if (LanguageSystem.isDebugMode()) {
+                    e.printStackTrace();
+                }
+            }
+        }, "jls-profile-save");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Removes the shutdown hook, if it was registered.
+     */
+    void unregisterShutdownHook() {
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down.
+            }
+            shutdownHook = null;
+        }
+    }
+
+    /**
+     * Preloads the profiled entries of a newly installed catalog on a
+     * background thread. Only the first catalog is preloaded.
+     */
+    void preload(Catalog catalog) {
+        if (!preloadPending || counts.isEmpty()) {
+            return;
+        }
+        preloadPending = false;
+        List<Map.Entry<String, Long>> entries = snapshot();
+        Thread thread = new Thread(() -> warm(catalog, entries), "jls-warmup");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static void compile(String value) {
+        if (value != null && value.indexOf('$') >= 0) {
+            LanguageFormatter.compile(value).format();
+        }
+    }
+
+    private static void warm(Catalog catalog, List<Map.Entry<String, Long>> entries) {
+        long start = System.nanoTime();
+        int warmed = 0;
+        for (Map.Entry<String, Long> entry : entries) {
+            String profiled = entry.getKey();
+            int separator = profiled.indexOf(SEPARATOR);
+            String language = profiled.substring(0, separator);
+            String key = profiled.substring(separator + 1);
+            try {
+                Catalog.PluralTable plurals = catalog.getPluralTable(language);
+                String value = catalog.get(language, key, null);
+                // Plural lookups are recorded under the bare key.
+                String[] forms = plurals != null ? plurals.formsOf(key) : null;
+                if (value != null || forms != null) {
+                    warmed++;
+                    compile(value);
+                    if (forms != null) {
+                        for (String form : forms) {
+                            compile(form);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (LanguageSystem.isDebugMode()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        if (LanguageSystem.isDebugMode()) {
+            System.out.println("Preloaded " + warmed + " of " + entries.size() + " profiled translations in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
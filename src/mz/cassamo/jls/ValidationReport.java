@@ -0,0 +1,315 @@
+package mz.cassamo.jls;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of validating a catalog with a {@link CatalogValidator}.
+ *
+ * <p>
+ * The report lists every issue found, sorted by type, language and key, and
+ * can be written as JSON for build pipelines:
+ * </p>
+ *
+ * <pre>{@code
+ * {
+ *   "languages": 3,
+ *   "entries": 1520,
+ *   "issues": 2,
+ *   "counts": {"MISSING_KEY": 1, "PLACEHOLDER_MISMATCH": 1},
+ *   "items": [
+ *     {"type": "MISSING_KEY", "language": "spanish", "key": "exit", "message": "..."},
+ *     ...
+ *   ]
+ * }
+ * }</pre>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public final class ValidationReport {
+
+    /**
+     * The kinds of issues reported.
+     */
+    public enum Type {
+        /**
+         * A key defined in other languages is missing.
+         */
+        MISSING_KEY,
+        /**
+         * A key has an empty value, for example after being padded by the
+         * builder.
+         */
+        EMPTY_VALUE,
+        /**
+         * A value has a different number of placeholders than the same key
+         * in the reference language.
+         */
+        PLACEHOLDER_MISMATCH,
+        /**
+         * A tense form is defined by only one language, while the other
+         * languages only define other forms of the key.
+         */
+        UNUSED_TENSE,
+        /**
+         * A key is defined more than once for the same language.
+         */
+        DUPLICATE_KEY
+    }
+
+    /**
+     * A single issue of a report.
+     */
+    public static final class Issue implements Comparable<Issue> {
+
+        private final Type type;
+        private final String language;
+        private final String key;
+        private final String message;
+
+        Issue(Type type, String language, String key, String message) {
+            this.type = type;
+            this.language = language;
+            this.key = key;
+            this.message = message;
+        }
+
+        /**
+         * Returns the type of the issue.
+         *
+         * @return the type
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the language with the issue.
+         *
+         * @return the language
+         */
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * Returns the translation key with the issue.
+         *
+         * @return the full translation key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns a human readable description of the issue.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public int compareTo(Issue other) {
+            int result = type.compareTo(other.type);
+            if (result == 0) {
+                result = language.compareTo(other.language);
+            }
+            return result != 0 ? result : key.compareTo(other.key);
+        }
+
+        @Override
+        public String toString() {
+            return type + " [" + language + "] " + key + ": " + message;
+        }
+    }
+
+    private final int languages;
+    private final int entries;
+    private final List<Issue> issues;
+    private final long elapsedMillis;
+
+    ValidationReport(int languages, int entries, List<Issue> issues, long elapsedMillis) {
+        List<Issue> sorted = new ArrayList<>(issues);
+        Collections.sort(sorted);
+        this.languages = languages;
+        this.entries = entries;
+        this.issues = Collections.unmodifiableList(sorted);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns all issues, sorted by type, language and key.
+     *
+     * @return an unmodifiable list of issues
+     */
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    /**
+     * Returns the issues of one type.
+     *
+     * @param type the type of issue
+     * @return a new list of issues
+     */
+    public List<Issue> getIssues(Type type) {
+        List<Issue> result = new ArrayList<>();
+        for (Issue issue : issues) {
+            if (issue.type == type) {
+                result.add(issue);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of issues of each type.
+     *
+     * @return the counts, only for types with issues
+     */
+    public Map<Type, Integer> getCounts() {
+        Map<Type, Integer> counts = new EnumMap<>(Type.class);
+        for (Issue issue : issues) {
+            counts.merge(issue.type, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Checks if no issues were found.
+     *
+     * @return true if the catalog is consistent
+     */
+    public boolean isClean() {
+        return issues.isEmpty();
+    }
+
+    /**
+     * Returns the number of validated languages.
+     *
+     * @return the number of languages
+     */
+    public int getLanguageCount() {
+        return languages;
+    }
+
+    /**
+     * Returns the number of validated translations.
+     *
+     * @return the number of entries
+     */
+    public int getEntryCount() {
+        return entries;
+    }
+
+    /**
+     * Returns the time the validation took.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Converts this report to JSON.
+     *
+     * @return the JSON content
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder(128 + issues.size() * 96);
+        sb.append("{\n");
+        sb.append("  \"languages\": ").append(languages).append(",\n");
+        sb.append("  \"entries\": ").append(entries).append(",\n");
+        sb.append("  \"elapsedMillis\": ").append(elapsedMillis).append(",\n");
+        sb.append("  \"issues\": ").append(issues.size()).append(",\n");
+        sb.append("  \"counts\": {");
+        boolean first = true;
+        for (Map.Entry<Type, Integer> entry : getCounts().entrySet()) {
+            sb.append(first ? "" : ", ").append('"').append(entry.getKey()).append("\": ").append(entry.getValue());
+            first = false;
+        }
+        sb.append("},\n");
+        sb.append("  \"items\": [");
+        for (int i = 0; i < issues.size(); i++) {
+            Issue issue = issues.get(i);
+            sb.append(i == 0 ? "\n" : ",\n");
+            sb.append("    {\"type\": \"").append(issue.type).append("\", \"language\": ");
+            appendJsonString(sb, issue.language);
+            sb.append(", \"key\": ");
+            appendJsonString(sb, issue.key);
+            sb.append(", \"message\": ");
+            appendJsonString(sb, issue.message);
+            sb.append('}');
+        }
+        sb.append(issues.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes this report as JSON to a file.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+    }
+
+    static void appendJsonString(StringBuilder sb, String value) {
+        sb.append('"');
+        if (value == null) {
+            // Like Builder.escapeXml, a null value is written empty.
+            value = "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationReport[languages=" + languages + ", entries=" + entries
+                + ", issues=" + getCounts() + ", elapsed=" + elapsedMillis + "ms]";
+    }
+}
@@ -0,0 +1,61 @@
+package mz.cassamo.jls;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link CatalogSource} reading a language XML file, including its
+ * {@code <import-language>} files.
+ *
+ * <p>
+ * The version of the source is derived from the modification times and
+ * sizes of the file and of every file it imports, so editing an imported
+ * file is seen by {@link LanguageSystem#refresh()}.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public class XmlFileCatalogSource implements CatalogSource {
+
+    private final File file;
+
+    /**
+     * Creates a source for an XML file.
+     *
+     * @param xml_file_path the path to the XML file
+     */
+    public XmlFileCatalogSource(String xml_file_path) {
+        this.file = new File(xml_file_path).getAbsoluteFile();
+    }
+
+    /**
+     * Returns the XML file of this source.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public Catalog load() throws IOException {
+        LanguageHandler handler = new LanguageHandler();
+        handler.initFromFile(file.getPath());
+        return Catalog.of(handler.getLanguages());
+    }
+
+    @Override
+    public long getVersion() throws IOException {
+        if (!file.exists()) {
+            throw new IOException("File not found: " + file);
+        }
+        return ImportGraph.versionOf(file.toURI().toURL());
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
@@ -0,0 +1,64 @@
+package mz.cassamo.jls;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * A {@link CatalogSource} reading a language XML file from the classpath
+ * (including from a JAR), together with its {@code <import-language>} files.
+ *
+ * <p>
+ * Resources do not change while the application runs, so the parsed result
+ * is shared by all sources of the same resource and the version is always 0.
+ * </p>
+ *
+ * @author Cassamo
+ * @version 1.0
+ * @since 2024
+ */
+public class XmlResourceCatalogSource implements CatalogSource {
+
+    private final Class<?> resourceClass;
+    private final String resourcePath;
+
+    /**
+     * Creates a source for a classpath resource.
+     *
+     * @param resourceClass the class used to load the resource
+     * @param resourcePath the path of the resource, relative to the classpath
+     * root
+     */
+    public XmlResourceCatalogSource(Class<?> resourceClass, String resourcePath) {
+        this.resourceClass = resourceClass;
+        this.resourcePath = resourcePath.startsWith("/") ? resourcePath : "/".concat(resourcePath);
+    }
+
+    /**
+     * Returns the URL of the resource.
+     *
+     * @return the URL of the resource, or {@code null} if it does not exist
+     */
+    public URL getResource() {
+        return resourceClass.getResource(resourcePath);
+    }
+
+    @Override
+    public Catalog load() throws IOException {
+        URL resource = getResource();
+        if (resource == null) {
+            throw new FileNotFoundException("Resource not found: " + resourcePath);
+        }
+        return Catalog.of(LanguageHandler.load(resource).getLanguages());
+    }
+
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return resourcePath;
+    }
+}
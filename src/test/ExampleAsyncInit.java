@@ -0,0 +1,32 @@
+package test;
+
+import java.util.concurrent.CompletableFuture;
+
+import mz.cassamo.jls.Catalog;
+import mz.cassamo.jls.LanguageSystem;
+
+/**
+ * Using LanguageSystem while the translations load in the background.
+ */
+public class ExampleAsyncInit {
+
+    public static void main(String[] args) {
+        // Start loading without blocking this thread
+        // Note: Until the file is loaded, an empty catalog is served, so lookups return their default values
+        CompletableFuture<Catalog> loading = LanguageSystem.initializeFromFileAsync("english", "languages.xml", Catalog.empty());
+
+        // The application can already serve requests
+        System.out.println(LanguageSystem.get("hello_world", "Hello (default)"));
+
+        // Wait for the load, reporting errors instead of hiding them
+        loading.whenComplete((catalog, error) -> {
+            if (error != null) {
+                System.err.println("Translations could not be loaded: " + error);
+            } else {
+                System.out.println("Loaded " + catalog.size() + " translations: " + LanguageSystem.getLoadStats());
+            }
+        }).join();
+
+        System.out.println(LanguageSystem.get("hello_world", "Hello (default)"));
+    }
+}
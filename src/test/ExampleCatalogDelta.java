@@ -0,0 +1,45 @@
+package test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import mz.cassamo.jls.Catalog;
+import mz.cassamo.jls.CatalogDelta;
+
+/**
+ * Sends the changes of a catalog as a delta and applies them on the other
+ * side, checking that the XML form keeps a replaced language.
+ *
+ * @author cassamo
+ */
+public class ExampleCatalogDelta {
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> spanish = new HashMap<>();
+        spanish.put("hello_world", "Hola, Mundo!");
+        spanish.put("exit", "Salir");
+        Catalog catalog = Catalog.of(Collections.singletonMap("spanish", spanish));
+
+        // Replace the whole language: its other keys must not survive
+        CatalogDelta delta = new CatalogDelta()
+                .removeLanguage("spanish")
+                .put("spanish", "hello_world", "Hola, amigos!");
+        String xml = delta.toXmlString();
+        System.out.println(xml);
+
+        CatalogDelta received = CatalogDelta.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        Catalog sent = catalog.apply(delta);
+        Catalog applied = catalog.apply(received);
+
+        System.out.println("hello_world: " + applied.get("spanish", "hello_world", null));
+        System.out.println("exit: " + applied.get("spanish", "exit", null));
+        if (!CatalogDelta.between(sent, applied).isEmpty()) {
+            throw new IllegalStateException("The delta changed through XML: " + received);
+        }
+        System.out.println("Round trip: ok");
+    }
+}
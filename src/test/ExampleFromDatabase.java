@@ -0,0 +1,51 @@
+package test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import mz.cassamo.jls.JdbcCatalogSource;
+import mz.cassamo.jls.LanguageSystem;
+
+/**
+ * Using LanguageSystem with translations stored in a database.
+ *
+ * Note: This example uses an in-memory H2 database, so the H2 driver must be
+ * on the classpath. Any other JDBC driver works the same way.
+ */
+public class ExampleFromDatabase {
+
+    public static void main(String[] args) throws SQLException, IOException {
+        // The in-memory database lives as long as this connection is open
+        String url = "jdbc:h2:mem:translations;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE translations ("
+                    + "language VARCHAR(64) NOT NULL, "
+                    + "translation_key VARCHAR(255) NOT NULL, "
+                    + "translation_value VARCHAR(4000), "
+                    + "version BIGINT DEFAULT 0 NOT NULL, "
+                    + "PRIMARY KEY (language, translation_key))");
+            statement.execute("INSERT INTO translations VALUES "
+                    + "('english', 'hello_world', 'Hello, World!', 1), "
+                    + "('portuguese', 'hello_world', 'Olá, mundo!', 1)");
+
+            JdbcCatalogSource source = new JdbcCatalogSource(url, "sa", "");
+            source.setVersionQuery("SELECT MAX(version) FROM translations");
+
+            // Initialize with 'english' language, loading each language on first use
+            LanguageSystem.initialize("english", source, true);
+            System.out.println(LanguageSystem.get("hello_world"));
+
+            // Change a translation and bump its version
+            statement.execute("UPDATE translations SET translation_value = 'Hi, World!', version = 2 "
+                    + "WHERE language = 'english' AND translation_key = 'hello_world'");
+
+            // Reloads only because the version changed
+            System.out.println("Reloaded: " + LanguageSystem.refresh());
+            System.out.println(LanguageSystem.get("hello_world"));
+        }
+    }
+}
@@ -39,5 +39,9 @@ public class ExampleFromRes {
 
         // Displays the translation for "multi_line_message" in portugues
         System.out.println(LanguageSystem.getf("multi_line_message", "Kelven", "kelvencassamo9@gmail.com"));
+
+        // Displays the plural form of "unread_messages" for the given count in portugues
+        System.out.println(LanguageSystem.getPlural("unread_messages", 1));
+        System.out.println(LanguageSystem.getPlural("unread_messages", 5));
     }
 }
@@ -0,0 +1,76 @@
+package test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import mz.cassamo.jls.LanguageSystem;
+
+/**
+ * Compares the SAX and StAX parsers on a generated catalog.
+ *
+ * Usage: ExampleParserBenchmark [size in MB] (default: 100)
+ */
+public class ExampleParserBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+
+        // Generate a catalog of about the requested size
+        File catalog = File.createTempFile("jls-benchmark", ".xml");
+        catalog.deleteOnExit();
+        int keys = generateCatalog(catalog, megabytes * 1024L * 1024L);
+        System.out.println("Catalog: " + catalog.length() / (1024 * 1024) + " MB, " + keys + " keys per language");
+
+        // Warm up both parsers on a small catalog first
+        File warmup = File.createTempFile("jls-warmup", ".xml");
+        warmup.deleteOnExit();
+        generateCatalog(warmup, 1024L * 1024L);
+        for (int i = 0; i < 5; i++) {
+            load(LanguageSystem.ParserType.SAX, warmup);
+            load(LanguageSystem.ParserType.STAX, warmup);
+        }
+
+        long sax = load(LanguageSystem.ParserType.SAX, catalog);
+        int saxKeys = LanguageSystem.getTranslationKeys("english").size();
+        long stax = load(LanguageSystem.ParserType.STAX, catalog);
+        int staxKeys = LanguageSystem.getTranslationKeys("english").size();
+
+        System.out.println("SAX:  " + sax + " ms (" + saxKeys + " keys)");
+        System.out.println("STAX: " + stax + " ms (" + staxKeys + " keys)");
+    }
+
+    private static long load(LanguageSystem.ParserType type, File catalog) {
+        LanguageSystem.setParserType(type);
+        long start = System.nanoTime();
+        LanguageSystem.initializeFromFile("english", catalog.getPath());
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static int generateCatalog(File file, long targetBytes) throws IOException {
+        String[] languages = {"english", "portuguese", "spanish"};
+        // Each entry takes roughly 120 bytes
+        int keys = (int) Math.max(1, targetBytes / (120L * languages.length));
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("<languages>\n");
+            for (String language : languages) {
+                writer.write("  <language value=\"" + language + "\">\n");
+                for (int i = 0; i < keys; i++) {
+                    writer.write("    <translated value=\"key_" + i + "\">\n");
+                    if (i % 10 == 0) {
+                        writer.write("      <value tense=\"past\">Value " + i + " of " + language + "</value>\n");
+                        writer.write("      <value tense=\"gerund\">Value " + i + " of " + language + "</value>\n");
+                    } else {
+                        writer.write("      <value>Value $1 number " + i + " of " + language + "</value>\n");
+                    }
+                    writer.write("    </translated>\n");
+                }
+                writer.write("  </language>\n");
+            }
+            writer.write("</languages>");
+        }
+        return keys;
+    }
+}
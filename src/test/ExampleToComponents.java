@@ -43,9 +43,8 @@ public class ExampleToComponents {
         // Automatically translate components
         // To automatically translate components, you can use the autoTranslateComponents
         LanguageSystem.autoTranslateComponents("hello_world", label, button, textArea);
-        LanguageSystem.autoTranslateComponent(button, "presentation");
-
-        button.setText(LanguageSystem.getf("presentation", "Cassamo")); // Example of formatted text
+        // Example of formatted text: the arguments are kept across language changes
+        LanguageSystem.autoTranslateComponent(button, "presentation", () -> "Cassamo");
 
         
         JButton changeLangButton = new JButton("Change Language");